@@ -0,0 +1,121 @@
+package com.receiptprocessor.benchmarks;
+
+import com.receiptprocessor.db.PendingReceipt;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generates the receipts and file trees the benchmarks run on.
+ * Everything is derived from fixed seeds, so every run measures the same data.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+
+    private static final String[] STORES = {"Corner Market", "FreshCo", "Grocer & Sons", "Bio Shop", "Mega Mart"};
+    private static final String[] PRODUCTS = {"Milk", "Bread", "Eggs", "Chicken Breast", "Rice", "Apples",
+        "Greek Yogurt", "Oats", "Tofu", "Salmon", "Spinach", "Cheddar", "Lentils", "Bananas", "Almonds"};
+
+    private BenchmarkData() {
+    }
+
+    /**
+     * Builds an extraction dictionary shaped like the extractor's output.
+     *
+     * @param random Source of the values
+     * @param itemCount Number of line items
+     */
+    static Map<String, Object> receipt(Random random, int itemCount) {
+        List<Map<String, Object>> items = new ArrayList<>(itemCount);
+        double total = 0;
+        for (int i = 0; i < itemCount; i++) {
+            Map<String, Object> item = new LinkedHashMap<>();
+            double price = Math.round(random.nextDouble() * 2000) / 100.0;
+            item.put("name", PRODUCTS[random.nextInt(PRODUCTS.length)]);
+            item.put("price", price);
+            item.put("protein", Math.round(random.nextDouble() * 400) / 10.0);
+            item.put("calories", (double) random.nextInt(800));
+            items.add(item);
+            total += price;
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("items", items);
+        data.put("total_price", Math.round(total * 100) / 100.0);
+        data.put("store_name", STORES[random.nextInt(STORES.length)]);
+        data.put("date", String.format("2024-%02d-%02d", 1 + random.nextInt(12), 1 + random.nextInt(28)));
+        data.put("payment_method", random.nextBoolean() ? "card" : "cash");
+        return data;
+    }
+
+    /**
+     * Builds receipts with unique filenames and content hashes for a batch insert.
+     *
+     * @param random Source of the values
+     * @param first Number of the first receipt, used in its filename and hash
+     * @param count Number of receipts
+     */
+    static List<PendingReceipt> pendingReceipts(Random random, int first, int count) {
+        List<PendingReceipt> receipts = new ArrayList<>(count);
+        for (int i = first; i < first + count; i++) {
+            receipts.add(new PendingReceipt(filename(i), hash(i), receipt(random, 3 + random.nextInt(8))));
+        }
+        return receipts;
+    }
+
+    static String filename(int number) {
+        return "receipt-" + number + ".pdf";
+    }
+
+    static String hash(int number) {
+        return String.format("%064x", number);
+    }
+
+    /**
+     * Writes a year/month/day tree of small receipt files. One file in ten has an
+     * unsupported extension, so the scanner's filtering is part of the measurement.
+     *
+     * @param root Directory to create the tree in
+     * @param fileCount Number of files
+     * @return The receipt files that were written, in creation order
+     */
+    static List<Path> receiptTree(Path root, int fileCount) throws IOException {
+        List<Path> receipts = new ArrayList<>();
+        for (int i = 0; i < fileCount; i++) {
+            Path directory = root.resolve(String.format("%d/%02d/%02d", 2020 + i / 3600, 1 + i / 300 % 12, 1 + i / 10 % 30));
+            Files.createDirectories(directory);
+            String extension = i % 10 == 9 ? ".txt" : i % 3 == 0 ? ".pdf" : ".jpg";
+            Path file = directory.resolve("receipt-" + i + extension);
+            // Distinct contents, so every file has its own fingerprint
+            Files.write(file, ("receipt " + i + "\n").repeat(64).getBytes(StandardCharsets.UTF_8));
+            if (!extension.equals(".txt")) {
+                receipts.add(file);
+            }
+        }
+        return receipts;
+    }
+
+    /**
+     * Deletes a directory tree, e.g. a benchmark's scratch directory.
+     */
+    static void delete(Path root) throws IOException {
+        if (root == null || !Files.exists(root)) {
+            return;
+        }
+        try (Stream<Path> paths = Files.walk(root)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toList()) {
+                Files.delete(path);
+            }
+        }
+    }
+}
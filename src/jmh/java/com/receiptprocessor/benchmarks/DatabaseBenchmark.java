@@ -0,0 +1,138 @@
+package com.receiptprocessor.benchmarks;
+
+import com.receiptprocessor.db.DatabaseManager;
+import org.openjdk.jmh.annotations.*;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Persistence hot paths against a database already holding {@code rows} receipts.
+ * <p>
+ * The populated database is built once per trial and copied for every measurement
+ * iteration of {@link #saveReceiptData}, so inserts always start from the same table size.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class DatabaseBenchmark {
+
+    private static final int INSERT_BATCH = 1000;
+
+    /**
+     * A populated template database and a read-only copy of it.
+     */
+    @State(Scope.Benchmark)
+    public static class Populated {
+        @Param({"1000", "100000"})
+        int rows;
+
+        Path directory;
+        Path template;
+        DatabaseManager db;
+        String[] storedFilenames;
+        String[] missingFilenames;
+
+        @Setup(Level.Trial)
+        public void setUp() throws Exception {
+            directory = Files.createTempDirectory("receipt-bench-db");
+            template = directory.resolve("template.db");
+
+            Random random = new Random(BenchmarkData.SEED);
+            DatabaseManager builder = new DatabaseManager(template.toString());
+            builder.initialize();
+            for (int first = 0; first < rows; first += INSERT_BATCH) {
+                builder.saveReceiptsBatch(BenchmarkData.pendingReceipts(random, first, Math.min(INSERT_BATCH, rows - first)));
+            }
+            builder.close();
+
+            Path readCopy = directory.resolve("read.db");
+            Files.copy(template, readCopy);
+            db = new DatabaseManager(readCopy.toString());
+            db.initialize();
+
+            // Built up front so lookups measure the lookup, not the string formatting
+            storedFilenames = new String[1024];
+            missingFilenames = new String[1024];
+            for (int i = 0; i < storedFilenames.length; i++) {
+                storedFilenames[i] = BenchmarkData.filename(random.nextInt(rows));
+                missingFilenames[i] = BenchmarkData.filename(rows + random.nextInt(rows));
+            }
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() throws Exception {
+            db.close();
+            BenchmarkData.delete(directory);
+        }
+    }
+
+    /**
+     * A fresh copy of the template for each iteration of the insert benchmark.
+     */
+    @State(Scope.Benchmark)
+    public static class Writable {
+        Path file;
+        DatabaseManager db;
+        Random random;
+        Map<String, Object> data;
+        int next;
+
+        @Setup(Level.Iteration)
+        public void setUp(Populated populated) throws Exception {
+            file = populated.directory.resolve("write.db");
+            Files.copy(populated.template, file, StandardCopyOption.REPLACE_EXISTING);
+            db = new DatabaseManager(file.toString());
+            db.initialize();
+            random = new Random(BenchmarkData.SEED);
+            data = BenchmarkData.receipt(random, 6);
+            next = populated.rows;
+        }
+
+        @TearDown(Level.Iteration)
+        public void tearDown() throws Exception {
+            db.close();
+            Files.deleteIfExists(file);
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class Cursor {
+        int position;
+
+        int next() {
+            return position++ & 1023;
+        }
+    }
+
+    @Benchmark
+    public int saveReceiptData(Writable writable) throws Exception {
+        int number = writable.next++;
+        return writable.db.saveReceiptData(BenchmarkData.filename(number), BenchmarkData.hash(number), writable.data);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public List<Map<String, Object>> getAllReceipts(Populated populated) throws Exception {
+        return populated.db.getAllReceipts();
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean receiptExistsHit(Populated populated, Cursor cursor) {
+        return populated.db.receiptExists(populated.storedFilenames[cursor.next()]);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public boolean receiptExistsMiss(Populated populated, Cursor cursor) {
+        return populated.db.receiptExists(populated.missingFilenames[cursor.next()]);
+    }
+}
@@ -0,0 +1,49 @@
+package com.receiptprocessor.benchmarks;
+
+import com.receiptprocessor.FileScanner;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Recursive scans of a generated year/month/day tree. After the first iteration the
+ * directory entries are in the OS cache, so this measures the walk, not the disk.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FileScannerBenchmark {
+
+    @Param({"1000", "20000"})
+    int files;
+
+    @Param({"1", "4"})
+    int threads;
+
+    private Path root;
+    private FileScanner scanner;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        root = Files.createTempDirectory("receipt-bench-scan");
+        BenchmarkData.receiptTree(root, files);
+        scanner = new FileScanner(threads);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws Exception {
+        BenchmarkData.delete(root);
+    }
+
+    @Benchmark
+    public List<File> scanDirectory() {
+        return scanner.scanDirectory(root.toFile());
+    }
+}
@@ -0,0 +1,65 @@
+package com.receiptprocessor.benchmarks;
+
+import com.receiptprocessor.db.ReceiptJsonCodec;
+import com.receiptprocessor.model.Receipt;
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.reflect.Type;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serialization of receipt dictionaries: plain Gson, as used for display and export,
+ * against the streaming codec the database stores raw_data with.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class JsonBenchmark {
+
+    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() { }.getType();
+
+    @Param({"3", "30"})
+    int items;
+
+    private final Gson gson = new Gson();
+    private Map<String, Object> data;
+    private String json;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        data = BenchmarkData.receipt(new Random(BenchmarkData.SEED), items);
+        json = ReceiptJsonCodec.toJson(data);
+    }
+
+    @Benchmark
+    public String gsonToJson() {
+        return gson.toJson(data);
+    }
+
+    @Benchmark
+    public Map<String, Object> gsonFromJson() {
+        return gson.fromJson(json, MAP_TYPE);
+    }
+
+    @Benchmark
+    public String codecToJson() {
+        return ReceiptJsonCodec.toJson(data);
+    }
+
+    @Benchmark
+    public Map<String, Object> codecToMap() {
+        return ReceiptJsonCodec.toMap(json);
+    }
+
+    @Benchmark
+    public Receipt codecToReceipt() {
+        return ReceiptJsonCodec.toReceipt(json);
+    }
+}
@@ -0,0 +1,94 @@
+package com.receiptprocessor.benchmarks;
+
+import com.receiptprocessor.IReceiptExtractor;
+import com.receiptprocessor.ProcessingConfig;
+import com.receiptprocessor.ReceiptProcessor;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * End-to-end ingestion of a generated folder into an empty database: scan, fingerprint,
+ * extract, persist. Extraction is a stub that sleeps for {@code extractMillis} per file,
+ * standing in for the OCR/model call; Git and the extraction cache are off.
+ */
+@BenchmarkMode(Mode.SingleShotTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3)
+@Measurement(iterations = 10)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProcessingBenchmark {
+
+    @Param({"500"})
+    int files;
+
+    @Param({"0", "5"})
+    int extractMillis;
+
+    @Param({"1", "8"})
+    int workers;
+
+    private Path directory;
+    private Path input;
+    private ReceiptProcessor processor;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() throws Exception {
+        directory = Files.createTempDirectory("receipt-bench-ingest");
+        input = directory.resolve("input");
+        BenchmarkData.receiptTree(input, files);
+    }
+
+    @Setup(Level.Invocation)
+    public void setUpInvocation() throws Exception {
+        Path state = Files.createTempDirectory(directory, "run");
+        ProcessingConfig config = new ProcessingConfig();
+        config.setWorkerThreads(workers);
+        config.setDatabasePath(state.resolve("receipts.db").toString());
+        config.setScanManifestPath(state.resolve("scan-manifest.tsv").toString());
+        config.setExtractionCacheEnabled(false);
+        config.setGitAutoCommit(false);
+        processor = new ReceiptProcessor(config, new SleepingExtractor(extractMillis));
+    }
+
+    @TearDown(Level.Invocation)
+    public void tearDownInvocation() {
+        processor.close();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDownTrial() throws Exception {
+        BenchmarkData.delete(directory);
+    }
+
+    @Benchmark
+    public int processReceipts() throws Exception {
+        return processor.processReceipts(input.toFile());
+    }
+
+    /**
+     * Returns a fixed receipt after a configurable delay.
+     */
+    static class SleepingExtractor implements IReceiptExtractor {
+        private final long delayMillis;
+        private final Map<String, Object> data = BenchmarkData.receipt(new Random(BenchmarkData.SEED), 6);
+
+        SleepingExtractor(long delayMillis) {
+            this.delayMillis = delayMillis;
+        }
+
+        @Override
+        public Map<String, Object> extractReceiptData(File receiptFile) throws Exception {
+            if (delayMillis > 0) {
+                Thread.sleep(delayMillis);
+            }
+            return data;
+        }
+    }
+}
@@ -0,0 +1,260 @@
+package com.receiptprocessor;
+
+import com.receiptprocessor.db.ReceiptJsonCodec;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Caches the results of another extractor by file content and extractor version,
+ * so re-processing a file (e.g. when rebuilding the database) never calls the
+ * extractor twice. Results are kept as compact JSON in a size-bounded in-memory
+ * LRU tier backed by one file per result on disk.
+ */
+public class CachingReceiptExtractor implements IReceiptExtractor {
+
+    private final IReceiptExtractor delegate;
+    private final FileFingerprinter fingerprinter;
+    private final Path versionDirectory;
+    private final long memoryBudgetBytes;
+
+    // Access-ordered, so iteration starts at the least recently used entry
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(16, 0.75f, true);
+    private long memoryBytes;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong diskHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+
+    /**
+     * @param delegate The extractor whose results are cached
+     * @param fingerprinter Hashes files passed without a known fingerprint
+     * @param cacheDirectory Root of the on-disk tier; results live in a subdirectory per extractor version
+     * @param memoryBudgetBytes Approximate size limit of the in-memory tier
+     */
+    public CachingReceiptExtractor(IReceiptExtractor delegate, FileFingerprinter fingerprinter,
+                                   Path cacheDirectory, long memoryBudgetBytes) {
+        this.delegate = delegate;
+        this.fingerprinter = fingerprinter;
+        this.versionDirectory = cacheDirectory.resolve(delegate.getVersion().replaceAll("[^A-Za-z0-9._-]", "_"));
+        this.memoryBudgetBytes = memoryBudgetBytes;
+    }
+
+    @Override
+    public Map<String, Object> extractReceiptData(File receiptFile) throws Exception {
+        return extractReceiptData(receiptFile, fingerprinter.fingerprint(receiptFile));
+    }
+
+    /**
+     * Returns the cached result for the file contents, extracting and caching it on a miss.
+     * Every call returns a fresh map, so callers may modify it.
+     */
+    @Override
+    public Map<String, Object> extractReceiptData(File receiptFile, String contentHash) throws Exception {
+        Map<String, Object> cached = lookup(contentHash);
+        if (cached != null) {
+            return cached;
+        }
+        misses.incrementAndGet();
+        Map<String, Object> data = delegate.extractReceiptData(receiptFile, contentHash);
+        store(receiptFile, contentHash, data);
+        return data;
+    }
+
+    @Override
+    public CompletableFuture<Map<String, Object>> extractReceiptDataAsync(File receiptFile, String contentHash,
+                                                                        Duration timeout, Executor executor) {
+        return extractBatchAsync(List.of(new ExtractionRequest(receiptFile, contentHash)), timeout, executor).get(0);
+    }
+
+    /**
+     * Answers cached files immediately and passes only the misses on to the
+     * wrapped extractor, still as one batch.
+     */
+    @Override
+    public List<CompletableFuture<Map<String, Object>>> extractBatchAsync(List<ExtractionRequest> requests,
+                                                                         Duration timeout, Executor executor) {
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>(requests.size());
+        List<ExtractionRequest> missed = new ArrayList<>();
+        List<Integer> missedPositions = new ArrayList<>();
+        for (ExtractionRequest request : requests) {
+            Map<String, Object> cached = lookup(request.contentHash());
+            if (cached != null) {
+                results.add(CompletableFuture.completedFuture(cached));
+            } else {
+                missedPositions.add(results.size());
+                missed.add(request);
+                results.add(null);
+            }
+        }
+        if (missed.isEmpty()) {
+            return results;
+        }
+
+        misses.addAndGet(missed.size());
+        List<CompletableFuture<Map<String, Object>>> extracted = delegate.extractBatchAsync(missed, timeout, executor);
+        for (int i = 0; i < missed.size(); i++) {
+            ExtractionRequest request = missed.get(i);
+            CompletableFuture<Map<String, Object>> pending = extracted.get(i);
+            CompletableFuture<Map<String, Object>> result = pending.thenApply(data -> {
+                store(request.file(), request.contentHash(), data);
+                return data;
+            });
+            // Cancelling the returned future cancels the extraction behind it
+            result.whenComplete((data, error) -> {
+                if (result.isCancelled()) {
+                    pending.cancel(true);
+                }
+            });
+            results.set(missedPositions.get(i), result);
+        }
+        return results;
+    }
+
+    /**
+     * Looks a result up in memory, then on disk.
+     *
+     * @return A fresh copy of the cached result, or null if the contents were not extracted before
+     */
+    private Map<String, Object> lookup(String contentHash) {
+        String json = getFromMemory(contentHash);
+        if (json != null) {
+            memoryHits.incrementAndGet();
+            return ReceiptJsonCodec.toMap(json);
+        }
+
+        Path cacheFile = cacheFileOf(contentHash);
+        try {
+            json = Files.readString(cacheFile, StandardCharsets.UTF_8);
+            Map<String, Object> data = ReceiptJsonCodec.toMap(json);
+            diskHits.incrementAndGet();
+            putInMemory(contentHash, json);
+            return data;
+        } catch (NoSuchFileException e) {
+            return null;
+        } catch (IOException | RuntimeException e) {
+            System.err.println("Ignoring unreadable extraction cache entry " + cacheFile + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    private void store(File receiptFile, String contentHash, Map<String, Object> data) {
+        String json = ReceiptJsonCodec.toJson(data);
+        putInMemory(contentHash, json);
+        try {
+            writeAtomically(cacheFileOf(contentHash), json);
+        } catch (IOException e) {
+            System.err.println("Failed to cache extraction of " + receiptFile.getName() + ": " + e.getMessage());
+        }
+    }
+
+    @Override
+    public String getVersion() {
+        return delegate.getVersion();
+    }
+
+    private synchronized String getFromMemory(String contentHash) {
+        return memory.get(contentHash);
+    }
+
+    /**
+     * Adds a result to the in-memory tier, evicting least recently used entries
+     * until it fits the budget. Results larger than the whole budget stay on disk only.
+     */
+    private synchronized void putInMemory(String contentHash, String json) {
+        long size = sizeOf(json);
+        if (size > memoryBudgetBytes) {
+            return;
+        }
+
+        String previous = memory.put(contentHash, json);
+        memoryBytes += size - (previous != null ? sizeOf(previous) : 0);
+
+        Iterator<Map.Entry<String, String>> eldest = memory.entrySet().iterator();
+        while (memoryBytes > memoryBudgetBytes && eldest.hasNext()) {
+            Map.Entry<String, String> entry = eldest.next();
+            if (entry.getKey().equals(contentHash)) {
+                continue;
+            }
+            memoryBytes -= sizeOf(entry.getValue());
+            eldest.remove();
+            evictions.incrementAndGet();
+        }
+    }
+
+    private static long sizeOf(String json) {
+        // Two bytes per char, as held by a UTF-16 string
+        return 2L * json.length();
+    }
+
+    /**
+     * Spreads entries over subdirectories named after the first hash characters,
+     * keeping directories small.
+     */
+    private Path cacheFileOf(String contentHash) {
+        String prefix = contentHash.length() > 2 ? contentHash.substring(0, 2) : "_";
+        return versionDirectory.resolve(prefix).resolve(contentHash + ".json");
+    }
+
+    /**
+     * Writes through a temporary file so a crash never leaves a half-written entry.
+     */
+    private static void writeAtomically(Path file, String json) throws IOException {
+        Files.createDirectories(file.getParent());
+        Path tempFile = Files.createTempFile(file.getParent(), file.getFileName().toString(), ".tmp");
+        try {
+            Files.writeString(tempFile, json, StandardCharsets.UTF_8);
+            Files.move(tempFile, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile);
+        }
+    }
+
+    public long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    public long getDiskHits() {
+        return diskHits.get();
+    }
+
+    public long getMisses() {
+        return misses.get();
+    }
+
+    public long getEvictions() {
+        return evictions.get();
+    }
+
+    /**
+     * Reports the extractor {@code version} the cache is keyed by, the {@code memory_hits},
+     * {@code disk_hits}, {@code misses} and {@code evictions} so far, and the current
+     * {@code memory_entries} and {@code memory_bytes} of the in-memory LRU.
+     */
+    public synchronized Map<String, Object> toMap() {
+        Map<String, Object> stats = new LinkedHashMap<>();
+        stats.put("version", getVersion());
+        stats.put("memory_hits", getMemoryHits());
+        stats.put("disk_hits", getDiskHits());
+        stats.put("misses", getMisses());
+        stats.put("evictions", getEvictions());
+        stats.put("memory_entries", memory.size());
+        stats.put("memory_bytes", memoryBytes);
+        return stats;
+    }
+}
@@ -0,0 +1,12 @@
+package com.receiptprocessor;
+
+import java.io.File;
+
+/**
+ * One file to extract, as passed to {@link IReceiptExtractor#extractBatchAsync}.
+ *
+ * @param file The receipt file
+ * @param contentHash SHA-256 fingerprint of the file contents
+ */
+public record ExtractionRequest(File file, String contentHash) {
+}
@@ -0,0 +1,113 @@
+package com.receiptprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.LongConsumer;
+
+/**
+ * Computes SHA-256 content fingerprints of receipt files.
+ * Small files are streamed through a per-thread direct buffer; large files are memory-mapped.
+ */
+public class FileFingerprinter {
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+    private static final long MAP_THRESHOLD = 4L * 1024 * 1024;
+    private static final long MAP_CHUNK_SIZE = 64L * 1024 * 1024;
+
+    private static final ThreadLocal<ByteBuffer> BUFFERS =
+        ThreadLocal.withInitial(() -> ByteBuffer.allocateDirect(BUFFER_SIZE));
+
+    /**
+     * Computes the SHA-256 fingerprint of a file.
+     *
+     * @param file The file to hash
+     * @return Lowercase hex SHA-256 of the file contents
+     */
+    public String fingerprint(File file) throws IOException {
+        MessageDigest digest = newDigest();
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size >= MAP_THRESHOLD) {
+                for (long position = 0; position < size; position += MAP_CHUNK_SIZE) {
+                    long length = Math.min(MAP_CHUNK_SIZE, size - position);
+                    MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+                    digest.update(mapped);
+                }
+            } else {
+                ByteBuffer buffer = BUFFERS.get();
+                buffer.clear();
+                while (channel.read(buffer) != -1) {
+                    buffer.flip();
+                    digest.update(buffer);
+                    buffer.clear();
+                }
+            }
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+
+    /**
+     * Fingerprints files in parallel. Files that cannot be read are left out
+     * of the result and reported on stderr.
+     *
+     * @param files The files to hash
+     * @param threads Number of hashing threads
+     * @param latencyListener Receives the hashing time of each file in nanoseconds
+     * @return Fingerprints by file, in input order
+     */
+    public Map<File, String> fingerprintAll(List<File> files, int threads, LongConsumer latencyListener)
+            throws InterruptedException {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "receipt-hasher-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            Map<File, Future<String>> futures = new LinkedHashMap<>();
+            for (File file : files) {
+                futures.put(file, pool.submit(() -> {
+                    long start = System.nanoTime();
+                    String fingerprint = fingerprint(file);
+                    latencyListener.accept(System.nanoTime() - start);
+                    return fingerprint;
+                }));
+            }
+
+            Map<File, String> fingerprints = new LinkedHashMap<>();
+            for (Map.Entry<File, Future<String>> entry : futures.entrySet()) {
+                try {
+                    fingerprints.put(entry.getKey(), entry.getValue().get());
+                } catch (ExecutionException e) {
+                    System.err.println("Failed to hash " + entry.getKey().getName() + ": " + e.getCause().getMessage());
+                }
+            }
+            return fingerprints;
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private static MessageDigest newDigest() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException("SHA-256 not available", e);
+        }
+    }
+}
@@ -1,51 +1,204 @@
 package com.receiptprocessor;
 
 import java.io.File;
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.List;
+import java.io.IOException;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
 
 public class FileScanner {
-    
-    private static final List<String> SUPPORTED_EXTENSIONS = Arrays.asList(
-        ".pdf", ".jpg", ".jpeg", ".png", ".gif", ".bmp"
+
+    private static final Set<String> SUPPORTED_EXTENSIONS = Set.of(
+        "pdf", "jpg", "jpeg", "png", "gif", "bmp"
     );
 
+    // Directory levels listed up front; each subtree below them is walked on its own thread
+    private static final int FAN_OUT_DEPTH = 2;
+
+    private final int parallelism;
+
+    public FileScanner() {
+        this(Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * @param parallelism Number of subtrees walked concurrently
+     */
+    public FileScanner(int parallelism) {
+        this.parallelism = Math.max(1, parallelism);
+    }
+
     /**
-     * Scans a directory for receipt files (PDFs and images).
-     * 
+     * Scans a directory tree for receipt files (PDFs and images).
+     *
      * @param directory The directory to scan
-     * @return List of receipt files found
+     * @return List of receipt files found, sorted by path
      */
     public List<File> scanDirectory(File directory) {
-        List<File> receiptFiles = new ArrayList<>();
-        
+        return scanDirectory(directory, null);
+    }
+
+    /**
+     * Scans a directory tree for receipt files, yielding only files that are
+     * new or changed according to the manifest. The manifest is not updated;
+     * callers record files once they have been handled.
+     *
+     * @param directory The directory to scan
+     * @param manifest Previously handled files, or null to return every receipt file
+     * @return List of new or changed receipt files, sorted by path
+     */
+    public List<File> scanDirectory(File directory, ScanManifest manifest) {
+        Queue<File> found = new ConcurrentLinkedQueue<>();
+        scanDirectory(directory, manifest, found::add);
+
+        List<File> receiptFiles = new ArrayList<>(found);
+        receiptFiles.sort(Comparator.comparing(File::getPath));
+        return receiptFiles;
+    }
+
+    /**
+     * Scans a directory tree, handing each receipt file to the sink as soon as it is found
+     * instead of collecting them. Files arrive in no particular order, possibly from several
+     * threads at once. A sink that blocks slows the scan down; interrupting the calling
+     * thread stops it.
+     *
+     * @param directory The directory to scan
+     * @param manifest Previously handled files, or null to yield every receipt file
+     * @param sink Receives the new or changed receipt files; must be thread-safe
+     */
+    public void scanDirectory(File directory, ScanManifest manifest, Consumer<File> sink) {
+        scanDirectory(directory, manifest, (file, attrs) -> sink.accept(file));
+    }
+
+    /**
+     * Scans a directory tree like {@link #scanDirectory(File, ScanManifest, Consumer)}, also
+     * handing on the attributes each file was seen with. Recording those in the manifest,
+     * rather than reading them again later, keeps a file rewritten meanwhile from being
+     * taken as handled.
+     *
+     * @param directory The directory to scan
+     * @param manifest Previously handled files, or null to yield every receipt file
+     * @param sink Receives the new or changed receipt files and their attributes; must be thread-safe
+     */
+    public void scanDirectory(File directory, ScanManifest manifest, BiConsumer<File, BasicFileAttributes> sink) {
         if (directory == null || !directory.exists() || !directory.isDirectory()) {
-            return receiptFiles;
+            return;
         }
 
-        File[] files = directory.listFiles();
-        if (files == null) {
-            return receiptFiles;
+        List<Path> subtrees = new ArrayList<>();
+        collectSubtrees(directory.toPath(), 0, manifest, sink, subtrees);
+
+        if (subtrees.size() <= 1 || parallelism == 1) {
+            for (Path subtree : subtrees) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                walk(subtree, manifest, sink);
+            }
+        } else {
+            walkInParallel(subtrees, manifest, sink);
         }
+    }
 
-        for (File file : files) {
-            if (file.isFile() && isSupportedFile(file)) {
-                receiptFiles.add(file);
+    /**
+     * Lists the top levels of the tree, keeping their files and collecting
+     * the directories below {@link #FAN_OUT_DEPTH} as independent subtrees.
+     */
+    private void collectSubtrees(Path directory, int depth, ScanManifest manifest,
+                                 BiConsumer<File, BasicFileAttributes> sink, List<Path> subtrees) {
+        try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory)) {
+            for (Path entry : entries) {
+                if (Thread.currentThread().isInterrupted()) {
+                    return;
+                }
+                BasicFileAttributes attrs = Files.readAttributes(entry, BasicFileAttributes.class);
+                if (attrs.isDirectory()) {
+                    if (depth + 1 < FAN_OUT_DEPTH) {
+                        collectSubtrees(entry, depth + 1, manifest, sink, subtrees);
+                    } else {
+                        subtrees.add(entry);
+                    }
+                } else {
+                    acceptFile(entry, attrs, manifest, sink);
+                }
             }
+        } catch (IOException e) {
+            System.err.println("Failed to list " + directory + ": " + e.getMessage());
         }
+    }
 
-        return receiptFiles;
+    private void walkInParallel(List<Path> subtrees, ScanManifest manifest, BiConsumer<File, BasicFileAttributes> sink) {
+        AtomicInteger threadCount = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(parallelism, subtrees.size()), runnable -> {
+            Thread thread = new Thread(runnable, "file-scanner-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            List<Future<?>> walks = new ArrayList<>();
+            for (Path subtree : subtrees) {
+                walks.add(pool.submit(() -> walk(subtree, manifest, sink)));
+            }
+            for (Future<?> walk : walks) {
+                walk.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            System.err.println("Directory scan failed: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    private void walk(Path subtree, ScanManifest manifest, BiConsumer<File, BasicFileAttributes> sink) {
+        try {
+            Files.walkFileTree(subtree, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    acceptFile(file, attrs, manifest, sink);
+                    return Thread.currentThread().isInterrupted() ? FileVisitResult.TERMINATE : FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    System.err.println("Failed to scan " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to scan " + subtree + ": " + e.getMessage());
+        }
+    }
+
+    private void acceptFile(Path file, BasicFileAttributes attrs, ScanManifest manifest,
+                            BiConsumer<File, BasicFileAttributes> sink) {
+        if (!attrs.isRegularFile() || !isSupportedFile(file.getFileName().toString())) {
+            return;
+        }
+
+        Path absolute = file.toAbsolutePath();
+        if (manifest == null || manifest.isNewOrChanged(absolute, attrs.size(), attrs.lastModifiedTime().toMillis())) {
+            sink.accept(absolute.toFile(), attrs);
+        }
     }
 
     /**
-     * Checks if a file has a supported extension.
-     * 
-     * @param file The file to check
+     * Checks if a filename has a supported extension.
+     *
+     * @param filename The filename to check
      * @return true if the file is supported
      */
-    private boolean isSupportedFile(File file) {
-        String filename = file.getName().toLowerCase();
-        return SUPPORTED_EXTENSIONS.stream().anyMatch(filename::endsWith);
+    public static boolean isSupportedFile(String filename) {
+        int dot = filename.lastIndexOf('.');
+        if (dot < 0 || dot == filename.length() - 1) {
+            return false;
+        }
+        return SUPPORTED_EXTENSIONS.contains(filename.substring(dot + 1).toLowerCase(Locale.ROOT));
     }
 }
@@ -1,16 +1,31 @@
 package com.receiptprocessor;
 
+import com.receiptprocessor.metrics.Metrics;
+
 import java.io.BufferedReader;
 import java.io.File;
 import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
 
 public class GitAutoCommit {
     
     private final File projectRoot;
+    private final List<String> paths;
     
     public GitAutoCommit() {
+        this("receipts.db");
+    }
+
+    /**
+     * @param paths Files or directories to commit, relative to the project root,
+     *              e.g. the database file or the export directory
+     */
+    public GitAutoCommit(String... paths) {
         // Assume we're running from the project root
         this.projectRoot = new File(System.getProperty("user.dir"));
+        this.paths = List.of(paths);
     }
     
     /**
@@ -19,41 +34,82 @@ public class GitAutoCommit {
      * @param message The commit message
      */
     public void commitAndPush(String message) {
+        if (commit(message)) {
+            push(message);
+        }
+    }
+    
+    /**
+     * Stages the versioned paths and commits them.
+     * 
+     * @param message The commit message (may span several lines)
+     * @return true if a commit was created
+     */
+    public boolean commit(String message) {
         try {
             // Check if git is initialized
             File gitDir = new File(projectRoot, ".git");
             if (!gitDir.exists()) {
                 System.out.println("Git not initialized. Skipping auto-commit.");
-                return;
+                return false;
             }
             
-            // Stage the database file
-            executeGitCommand("git", "add", "receipts.db");
+            // Stage the versioned files
+            executeGitCommand(gitCommand("add", "--"));
             
             // Check if there are changes to commit
-            String status = executeGitCommand("git", "status", "--porcelain");
+            String status = executeGitCommand(gitCommand("status", "--porcelain", "--"));
             if (status.trim().isEmpty()) {
                 System.out.println("No changes to commit.");
-                return;
+                return false;
             }
             
             // Commit
             executeGitCommand("git", "commit", "-m", message);
-            
-            // Push to remote (if configured)
-            try {
-                executeGitCommand("git", "push");
-                System.out.println("Successfully pushed to GitHub: " + message);
-            } catch (Exception e) {
-                System.out.println("Push failed (no remote configured or network issue): " + e.getMessage());
-            }
+            Metrics.increment(Metrics.Counter.GIT_COMMITS);
+            return true;
             
         } catch (Exception e) {
+            Metrics.increment(Metrics.Counter.GIT_FAILURES);
             System.err.println("Git auto-commit failed: " + e.getMessage());
+            return false;
         }
     }
     
+    /**
+     * Pushes committed changes to the configured remote.
+     * 
+     * @param description Short description used in log output
+     */
+    public void push(String description) {
+        // Push to remote (if configured)
+        try {
+            executeGitCommand("git", "push");
+            System.out.println("Successfully pushed to GitHub: " + description);
+        } catch (Exception e) {
+            Metrics.increment(Metrics.Counter.GIT_FAILURES);
+            System.out.println("Push failed (no remote configured or network issue): " + e.getMessage());
+        }
+    }
+    
+    private String[] gitCommand(String... arguments) {
+        List<String> command = new ArrayList<>();
+        command.add("git");
+        command.addAll(Arrays.asList(arguments));
+        command.addAll(paths);
+        return command.toArray(new String[0]);
+    }
+
     private String executeGitCommand(String... command) throws Exception {
+        long start = System.nanoTime();
+        try {
+            return runGitCommand(command);
+        } finally {
+            Metrics.recordSince(Metrics.Stage.GIT, start);
+        }
+    }
+
+    private String runGitCommand(String... command) throws Exception {
         ProcessBuilder pb = new ProcessBuilder(command);
         pb.directory(projectRoot);
         pb.redirectErrorStream(true);
@@ -0,0 +1,187 @@
+package com.receiptprocessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Coalesces saved receipts into group commits.
+ * A commit is made once {@code maxReceiptsPerCommit} receipts are pending,
+ * when the commit window expires, or when {@link #flush()} is called.
+ * Commits and pushes run on background threads, off the ingestion thread.
+ */
+public class GitCommitScheduler {
+
+    private static final int MAX_LISTED_RECEIPTS = 50;
+
+    private final GitAutoCommit gitAutoCommit;
+    private final Runnable beforeCommit;
+    private final Runnable afterCommit;
+    private final int maxReceiptsPerCommit;
+    private final long commitWindowMillis;
+    private final ScheduledExecutorService commitExecutor;
+    private final ExecutorService pushExecutor;
+    private final AtomicBoolean pushQueued = new AtomicBoolean(false);
+
+    private final List<String> pendingReceipts = new ArrayList<>();
+    private ScheduledFuture<?> windowTimer;
+    private boolean shutdown;
+
+    /**
+     * @param gitAutoCommit Performs the actual git operations
+     * @param maxReceiptsPerCommit Pending receipts that trigger an immediate commit
+     * @param commitWindowMillis Longest time a saved receipt waits for its commit
+     * @param beforeCommit Runs on the commit thread before each commit (e.g. a WAL checkpoint)
+     * @param afterCommit Runs on the commit thread after each successful commit
+     */
+    public GitCommitScheduler(GitAutoCommit gitAutoCommit, int maxReceiptsPerCommit, long commitWindowMillis,
+                              Runnable beforeCommit, Runnable afterCommit) {
+        this.gitAutoCommit = gitAutoCommit;
+        this.beforeCommit = beforeCommit;
+        this.afterCommit = afterCommit;
+        this.maxReceiptsPerCommit = maxReceiptsPerCommit;
+        this.commitWindowMillis = commitWindowMillis;
+        this.commitExecutor = Executors.newSingleThreadScheduledExecutor(daemonThreads("git-commit"));
+        this.pushExecutor = Executors.newSingleThreadExecutor(daemonThreads("git-push"));
+    }
+
+    /**
+     * Records a saved receipt so it is included in the next group commit.
+     *
+     * @param filename The filename of the saved receipt
+     */
+    public synchronized void receiptSaved(String filename) {
+        if (shutdown) {
+            throw new IllegalStateException("Commit scheduler has been shut down");
+        }
+
+        pendingReceipts.add(filename);
+
+        if (pendingReceipts.size() >= maxReceiptsPerCommit) {
+            scheduleCommit(0);
+        } else if (windowTimer == null) {
+            scheduleCommit(commitWindowMillis);
+        }
+    }
+
+    /**
+     * Requests an immediate commit of all pending receipts without waiting for it.
+     */
+    public synchronized void flush() {
+        if (!shutdown && !pendingReceipts.isEmpty()) {
+            scheduleCommit(0);
+        }
+    }
+
+    /**
+     * Commits any pending receipts and waits for outstanding commits and pushes to finish.
+     */
+    public void shutdown() {
+        synchronized (this) {
+            if (shutdown) {
+                return;
+            }
+            shutdown = true;
+            if (windowTimer != null) {
+                windowTimer.cancel(false);
+                windowTimer = null;
+            }
+        }
+
+        // Final flush runs after any commit that is already queued
+        commitExecutor.execute(this::commitPending);
+        awaitTermination(commitExecutor);
+        awaitTermination(pushExecutor);
+    }
+
+    private void scheduleCommit(long delayMillis) {
+        if (windowTimer != null) {
+            if (delayMillis > 0 || windowTimer.getDelay(TimeUnit.MILLISECONDS) <= 0) {
+                return;
+            }
+            windowTimer.cancel(false);
+        }
+        windowTimer = commitExecutor.schedule(this::commitPending, delayMillis, TimeUnit.MILLISECONDS);
+    }
+
+    private void commitPending() {
+        List<String> receipts;
+        synchronized (this) {
+            windowTimer = null;
+            if (pendingReceipts.isEmpty()) {
+                return;
+            }
+            receipts = new ArrayList<>(pendingReceipts);
+            pendingReceipts.clear();
+        }
+
+        try {
+            beforeCommit.run();
+        } catch (RuntimeException e) {
+            System.err.println("Pre-commit step failed: " + e.getMessage());
+        }
+
+        String message = buildCommitMessage(receipts);
+        if (gitAutoCommit.commit(message)) {
+            try {
+                afterCommit.run();
+            } catch (RuntimeException e) {
+                System.err.println("Post-commit step failed: " + e.getMessage());
+            }
+            requestPush(message.lines().findFirst().orElse(message));
+        }
+    }
+
+    private void requestPush(String description) {
+        // A queued push will include this commit as well
+        if (pushQueued.compareAndSet(false, true)) {
+            pushExecutor.execute(() -> {
+                pushQueued.set(false);
+                gitAutoCommit.push(description);
+            });
+        }
+    }
+
+    /**
+     * Builds a commit message listing every receipt in the commit.
+     * Long lists are truncated with a summary line.
+     */
+    static String buildCommitMessage(List<String> receipts) {
+        if (receipts.size() == 1) {
+            return "Added receipt: " + receipts.get(0);
+        }
+
+        StringBuilder message = new StringBuilder();
+        message.append("Added ").append(receipts.size()).append(" receipts\n\n");
+
+        int listed = Math.min(receipts.size(), MAX_LISTED_RECEIPTS);
+        for (int i = 0; i < listed; i++) {
+            message.append("- ").append(receipts.get(i)).append("\n");
+        }
+        if (receipts.size() > listed) {
+            message.append("... and ").append(receipts.size() - listed).append(" more\n");
+        }
+
+        return message.toString();
+    }
+
+    private static void awaitTermination(ExecutorService executor) {
+        executor.shutdown();
+        try {
+            if (!executor.awaitTermination(2, TimeUnit.MINUTES)) {
+                System.err.println("Timed out waiting for git operations to finish.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        return runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -1,7 +1,14 @@
 package com.receiptprocessor;
 
 import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.FutureTask;
+import java.util.concurrent.TimeUnit;
 
 /**
  * Interface for extracting receipt data from PDF and image files.
@@ -31,7 +38,99 @@ public interface IReceiptExtractor {
      * 
      * @param receiptFile The receipt file to process
      * @return Dictionary with extracted data
-     * @throws Exception if processing fails
+     * @throws PermanentExtractionException if the file can never be extracted; it is not retried
+     * @throws Exception if processing fails; the file is retried with backoff
      */
     Map<String, Object> extractReceiptData(File receiptFile) throws Exception;
+
+    /**
+     * Extracts receipt information from a file whose content fingerprint is already known.
+     * Implementations that cache results use the fingerprint as key; by default it is ignored.
+     * 
+     * @param receiptFile The receipt file to process
+     * @param contentHash SHA-256 fingerprint of the file contents
+     * @return Dictionary with extracted data
+     * @throws Exception if processing fails
+     */
+    default Map<String, Object> extractReceiptData(File receiptFile, String contentHash) throws Exception {
+        return extractReceiptData(receiptFile);
+    }
+
+    /**
+     * Starts extracting a file without blocking the caller.
+     * 
+     * Contract for implementations: the future completes with the extracted data, or
+     * exceptionally with the extraction failure. If a timeout is given, the future
+     * completes with a {@link java.util.concurrent.TimeoutException} once it has passed
+     * after the extraction started running; time spent waiting for the executor does not count.
+     * When the future is cancelled or times out, the extraction should be abandoned and
+     * its result discarded.
+     * 
+     * The default runs {@link #extractReceiptData(File, String)} as a task on the executor
+     * and interrupts it when the future is cancelled or times out.
+     * 
+     * @param receiptFile The receipt file to process
+     * @param contentHash SHA-256 fingerprint of the file contents
+     * @param timeout Maximum running time of the extraction, or null for no limit
+     * @param executor Runs blocking work of the extraction
+     * @return The pending extraction result
+     */
+    default CompletableFuture<Map<String, Object>> extractReceiptDataAsync(File receiptFile, String contentHash,
+                                                                         Duration timeout, Executor executor) {
+        CompletableFuture<Map<String, Object>> result = new CompletableFuture<>();
+        FutureTask<Void> task = new FutureTask<>(() -> {
+            // Armed here rather than at submission, so a task queued behind others is not timed out unstarted
+            if (timeout != null) {
+                result.orTimeout(timeout.toMillis(), TimeUnit.MILLISECONDS);
+            }
+            try {
+                result.complete(extractReceiptData(receiptFile, contentHash));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+            return null;
+        });
+        // Cancellation and timeouts complete the future early; stop the work behind it
+        result.whenComplete((data, error) -> {
+            if (error != null) {
+                task.cancel(true);
+            }
+        });
+        executor.execute(task);
+        return result;
+    }
+
+    /**
+     * Starts extracting several files at once. Extractors backed by a service that
+     * handles batched requests more efficiently should override this.
+     * 
+     * Each file has its own future, so one failed file does not fail the others.
+     * The timeout applies to each future as in
+     * {@link #extractReceiptDataAsync(File, String, Duration, Executor)}, and so does cancellation.
+     * 
+     * The default starts one asynchronous extraction per file.
+     * 
+     * @param requests The files to extract
+     * @param timeout Maximum running time of each extraction, or null for no limit
+     * @param executor Runs blocking work of the extractions
+     * @return One pending result per request, in request order
+     */
+    default List<CompletableFuture<Map<String, Object>>> extractBatchAsync(List<ExtractionRequest> requests,
+                                                                          Duration timeout, Executor executor) {
+        List<CompletableFuture<Map<String, Object>>> results = new ArrayList<>(requests.size());
+        for (ExtractionRequest request : requests) {
+            results.add(extractReceiptDataAsync(request.file(), request.contentHash(), timeout, executor));
+        }
+        return results;
+    }
+
+    /**
+     * Identifies the extraction logic. Change it whenever the same file would now
+     * produce different output, so results cached from older versions are not reused.
+     * 
+     * @return The extractor version
+     */
+    default String getVersion() {
+        return "1";
+    }
 }
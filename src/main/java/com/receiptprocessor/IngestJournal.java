@@ -0,0 +1,119 @@
+package com.receiptprocessor;
+
+import com.receiptprocessor.db.DatabaseManager;
+import com.receiptprocessor.db.JournalEntry;
+import com.receiptprocessor.db.JournalState;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+/**
+ * Records each file's way through ingestion in the database journal.
+ * <p>
+ * State changes come from the hashing, dispatch and persist threads and are only queued
+ * in memory; {@link #flush()} writes them in one transaction. The persist stage flushes
+ * with every database batch, so the journal lags the receipts by at most one batch and
+ * costs one extra write per batch rather than one per file. Anything lost in a crash is
+ * harmless: a file whose change was not written is simply looked at again on resume,
+ * where deduplication recognizes it if its receipt was stored.
+ * <p>
+ * Failed files are kept in memory as well so scans can skip them cheaply until they are re-queued.
+ */
+class IngestJournal {
+
+    private final DatabaseManager dbManager;
+    private final ConcurrentLinkedQueue<JournalEntry> changes = new ConcurrentLinkedQueue<>();
+    // Path -> content hash of files that failed and were not re-queued
+    private final Map<String, String> failed = new ConcurrentHashMap<>();
+
+    IngestJournal(DatabaseManager dbManager) {
+        this.dbManager = dbManager;
+    }
+
+    /**
+     * Loads the failed files from the database.
+     */
+    void load() throws Exception {
+        failed.clear();
+        for (JournalEntry entry : dbManager.getJournalEntries(JournalState.FAILED)) {
+            failed.put(entry.path(), String.valueOf(entry.contentHash()));
+        }
+    }
+
+    /**
+     * Checks if this version of a file failed before and has not been re-queued.
+     * A file whose contents changed since is tried again.
+     */
+    boolean isFailed(File file, String contentHash) {
+        return contentHash.equals(failed.get(pathOf(file)));
+    }
+
+    void discovered(File file, String contentHash) {
+        record(file, contentHash, JournalState.DISCOVERED, 0, null);
+    }
+
+    /**
+     * Records that a file was handed to the extractor, counting one attempt.
+     */
+    void extracting(ExtractionRequest request) {
+        record(request.file(), request.contentHash(), JournalState.EXTRACTING, 1, null);
+    }
+
+    void retrying(File file, String contentHash, String error) {
+        record(file, contentHash, JournalState.RETRYING, 0, error != null ? error : "Unknown error");
+    }
+
+    void stored(File file, String contentHash) {
+        record(file, contentHash, JournalState.STORED, 0, null);
+    }
+
+    void failed(File file, String contentHash, String error) {
+        failed.put(pathOf(file), String.valueOf(contentHash));
+        record(file, contentHash, JournalState.FAILED, 0, error != null ? error : "Unknown error");
+    }
+
+    /**
+     * Forgets failures that were put back in line in the database.
+     *
+     * @param paths The re-queued files, or null for all
+     */
+    void requeued(List<String> paths) {
+        if (paths == null) {
+            failed.clear();
+        } else {
+            paths.forEach(failed::remove);
+        }
+    }
+
+    private void record(File file, String contentHash, JournalState state, int attempts, String error) {
+        changes.add(new JournalEntry(pathOf(file), contentHash, state, attempts, error, System.currentTimeMillis()));
+    }
+
+    /**
+     * Writes the queued changes. Failures are logged and the changes dropped;
+     * the journal then errs towards looking at a file again.
+     */
+    synchronized void flush() {
+        if (changes.isEmpty()) {
+            return;
+        }
+        List<JournalEntry> batch = new ArrayList<>();
+        JournalEntry change;
+        while ((change = changes.poll()) != null) {
+            batch.add(change);
+        }
+        try {
+            dbManager.writeJournal(batch);
+        } catch (Exception e) {
+            System.err.println("Failed to write ingestion journal: " + e.getMessage());
+        }
+    }
+
+    static String pathOf(File file) {
+        return file.getAbsolutePath();
+    }
+}
@@ -0,0 +1,21 @@
+package com.receiptprocessor;
+
+import com.receiptprocessor.model.ReceiptSummary;
+
+import java.util.List;
+
+/**
+ * Receives receipts as an ingestion run stores them, so a view can show them
+ * without reloading the whole list.
+ */
+@FunctionalInterface
+public interface IngestListener {
+
+    /**
+     * Called on the ingestion thread after each database batch is committed.
+     * Implementations should return quickly and hand UI work to the EDT.
+     *
+     * @param receipts The stored receipts, in ID order
+     */
+    void receiptsSaved(List<ReceiptSummary> receipts);
+}
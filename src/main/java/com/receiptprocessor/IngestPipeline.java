@@ -0,0 +1,543 @@
+package com.receiptprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BiConsumer;
+import java.util.function.Consumer;
+
+/**
+ * One ingestion run as a chain of stages connected by bounded queues:
+ * scan -> fingerprint/dedup -> extract -> persist -> version control.
+ * <p>
+ * Each stage runs on its own threads. A full queue blocks the stage feeding it, and every
+ * extraction holds a permit until the persist stage has taken its result, so a slow stage
+ * throttles the stages upstream and memory is bounded by the queue sizes rather than by
+ * the number of input files. Persisting runs on the thread that calls {@link #run()},
+ * which stays the single database writer; the persister hands saved receipts on to
+ * version control.
+ * <p>
+ * A transiently failed extraction waits in a delay queue for its backoff to pass and is
+ * then dispatched again, ahead of new files but without holding an extraction slot while it
+ * waits, so retries and new work share the extractor. The run ends once the input is
+ * exhausted and no extraction is in flight or waiting for a retry.
+ * <p>
+ * {@link #cancel()} stops the scan and drops files not yet extracted or waiting for a retry,
+ * but extractions already in flight finish and are persisted before {@link #run()} returns.
+ */
+class IngestPipeline {
+
+    // End-of-input markers, compared by identity
+    private static final ScannedFile END_OF_FILES = new ScannedFile(new File(""), null);
+    private static final ExtractionRequest END_OF_REQUESTS = new ExtractionRequest(END_OF_FILES.file(), "");
+    private static final Outcome END_OF_OUTCOMES = new Outcome(END_OF_REQUESTS, null, null);
+
+    // Longest time extracted receipts wait for a full database batch
+    private static final long IDLE_FLUSH_MILLIS = 500;
+    private static final long HAND_OFF_POLL_MILLIS = 100;
+    // Longest time a due retry waits while the dispatcher waits for new files
+    private static final long RETRY_POLL_MILLIS = 100;
+
+    /**
+     * Produces the files of a run, e.g. by scanning a folder.
+     */
+    interface Source {
+        /**
+         * @param sink Receives each file with its attributes as the source saw them, or null
+         *             attributes to have them read just before hashing; blocks while the
+         *             pipeline is full. Thread-safe.
+         */
+        void produce(BiConsumer<File, BasicFileAttributes> sink) throws Exception;
+    }
+
+    /**
+     * Decides whether a fingerprinted file still needs extraction. Called from several threads.
+     */
+    interface Deduplicator {
+        /**
+         * @param attributes Size and modification time of the file from before it was hashed
+         */
+        boolean isNew(File file, String contentHash, BasicFileAttributes attributes) throws Exception;
+    }
+
+    /**
+     * Stores extraction results. Only called from the thread running the pipeline.
+     */
+    interface Persister {
+        /**
+         * Saves a batch and clears it.
+         *
+         * @return Number of receipts saved
+         */
+        int save(List<ExtractionResult> batch);
+
+        /**
+         * Reports a transient failure that will be tried again after the delay.
+         */
+        void retrying(ExtractionRequest request, Throwable error, int attempts, long delayMillis);
+
+        /**
+         * Reports a transient failure that is not tried again because the run was cancelled.
+         * The file is left for {@link ReceiptProcessor#resumeInterrupted()}.
+         */
+        void interrupted(ExtractionRequest request, Throwable error, int attempts);
+
+        /**
+         * Reports a file given up on, after a permanent failure or the last allowed attempt.
+         */
+        void failed(ExtractionRequest request, Throwable error, int attempts);
+    }
+
+    /**
+     * @param attributes The file's attributes from before it was hashed, so they describe the extracted version
+     */
+    record ExtractionResult(File file, String contentHash, BasicFileAttributes attributes, Map<String, Object> data) {
+    }
+
+    private record ScannedFile(File file, BasicFileAttributes attributes) {
+    }
+
+    private record Outcome(ExtractionRequest request, Map<String, Object> data, Throwable error) {
+    }
+
+    private record Retry(ExtractionRequest request, long dueNanos) implements Delayed {
+        @Override
+        public long getDelay(TimeUnit unit) {
+            return unit.convert(dueNanos - System.nanoTime(), TimeUnit.NANOSECONDS);
+        }
+
+        @Override
+        public int compareTo(Delayed other) {
+            return Long.compare(dueNanos, ((Retry) other).dueNanos);
+        }
+    }
+
+    private final ProcessingConfig config;
+    private final IngestStats stats;
+    private final FileFingerprinter fingerprinter;
+    private final IReceiptExtractor extractor;
+    private final Source source;
+    private final Deduplicator deduplicator;
+    // Told about each file as it is handed to the extractor; runs on the dispatcher thread
+    private final Consumer<ExtractionRequest> dispatched;
+    private final Persister persister;
+    private final RetryPolicy retryPolicy;
+
+    private final BlockingQueue<ScannedFile> files;
+    private final BlockingQueue<ExtractionRequest> requests;
+    // Unbounded, but never holds more than maxInFlight outcomes
+    private final BlockingQueue<Outcome> outcomes = new LinkedBlockingQueue<>();
+    private final int maxInFlight;
+    private final Semaphore inFlight;
+    // Failed extractions waiting for their backoff; they hold no in-flight permit meanwhile
+    private final DelayQueue<Retry> retries = new DelayQueue<>();
+    // Attempts per file that is in flight or waiting for a retry
+    private final Map<ExtractionRequest, Integer> attempts = new ConcurrentHashMap<>();
+    // Attributes of each file between hashing and persisting
+    private final Map<ExtractionRequest, BasicFileAttributes> attributes = new ConcurrentHashMap<>();
+    // Touched by the dispatcher only
+    private boolean inputEnded;
+
+    private volatile boolean cancelled;
+    private volatile boolean stopped;
+    private volatile Thread scanThread;
+
+    IngestPipeline(ProcessingConfig config, IngestStats stats, FileFingerprinter fingerprinter,
+                   IReceiptExtractor extractor, Source source, Deduplicator deduplicator,
+                   Consumer<ExtractionRequest> dispatched, Persister persister) {
+        this.config = config;
+        this.stats = stats;
+        this.fingerprinter = fingerprinter;
+        this.extractor = extractor;
+        this.source = source;
+        this.deduplicator = deduplicator;
+        this.dispatched = dispatched;
+        this.persister = persister;
+        this.retryPolicy = RetryPolicy.of(config);
+        this.files = new ArrayBlockingQueue<>(config.getPipelineQueueCapacity());
+        this.requests = new ArrayBlockingQueue<>(config.getPipelineQueueCapacity());
+        this.maxInFlight = config.getMaxInFlightExtractions() > 0
+            ? config.getMaxInFlightExtractions()
+            : config.getWorkerThreads() * config.getExtractionBatchSize();
+        this.inFlight = new Semaphore(maxInFlight);
+    }
+
+    /**
+     * Runs the pipeline to completion. The calling thread persists the results.
+     *
+     * @return Number of receipts saved
+     */
+    int run() throws InterruptedException {
+        int hashThreads = config.getHashThreads();
+        AtomicInteger activeHashers = new AtomicInteger(hashThreads);
+        ExecutorService hashers = Executors.newFixedThreadPool(hashThreads, daemonThreads("ingest-hasher"));
+        ExecutorService extractors = createWorkerPool();
+        Thread scanner = new Thread(this::scan, "ingest-scanner");
+        Thread dispatcher = new Thread(() -> dispatch(extractors), "ingest-dispatcher");
+        scanner.setDaemon(true);
+        dispatcher.setDaemon(true);
+
+        try {
+            scanThread = scanner;
+            scanner.start();
+            for (int i = 0; i < hashThreads; i++) {
+                hashers.execute(() -> fingerprintFiles(activeHashers));
+            }
+            dispatcher.start();
+            return persist();
+        } finally {
+            // Every stage has finished after a normal run; this stops them if the writer was interrupted
+            stopped = true;
+            scanner.interrupt();
+            dispatcher.interrupt();
+            hashers.shutdownNow();
+            extractors.shutdownNow();
+        }
+    }
+
+    /**
+     * Stops feeding new files into the pipeline. Extractions in flight are still persisted.
+     */
+    void cancel() {
+        cancelled = true;
+        Thread scanner = scanThread;
+        if (scanner != null) {
+            scanner.interrupt();
+        }
+    }
+
+    /**
+     * Scan stage: feeds the source's files into the fingerprint queue.
+     */
+    private void scan() {
+        long start = System.nanoTime();
+        try {
+            source.produce((file, scanned) -> {
+                if (!cancelled && hand(files, new ScannedFile(file, scanned))) {
+                    stats.addScanned(1);
+                }
+            });
+        } catch (Exception e) {
+            System.err.println("Scan failed: " + e.getMessage());
+        } finally {
+            stats.recordLatency(IngestStats.Stage.SCAN, System.nanoTime() - start);
+            stats.markScanComplete();
+            // A cancelled scan was interrupted, but the hashers still need their end markers
+            Thread.interrupted();
+            for (int i = 0; i < config.getHashThreads(); i++) {
+                hand(files, END_OF_FILES);
+            }
+        }
+    }
+
+    /**
+     * Fingerprint/dedup stage: hashes files and forwards those not stored yet.
+     * The last hasher to finish passes the end marker on.
+     */
+    private void fingerprintFiles(AtomicInteger activeHashers) {
+        try {
+            while (true) {
+                ScannedFile scanned = files.take();
+                if (scanned == END_OF_FILES) {
+                    break;
+                }
+                if (cancelled) {
+                    continue;
+                }
+
+                File file = scanned.file();
+                BasicFileAttributes fileAttributes = scanned.attributes();
+                String contentHash;
+                long start = System.nanoTime();
+                try {
+                    // Read before hashing: if the file changes meanwhile, the attributes are stale
+                    // and the next incremental scan looks at it again
+                    if (fileAttributes == null) {
+                        fileAttributes = Files.readAttributes(file.toPath(), BasicFileAttributes.class);
+                    }
+                    contentHash = fingerprinter.fingerprint(file);
+                } catch (IOException e) {
+                    stats.addFailed(1);
+                    System.err.println("Failed to hash " + file.getName() + ": " + e.getMessage());
+                    continue;
+                }
+                stats.recordLatency(IngestStats.Stage.HASH, System.nanoTime() - start);
+
+                try {
+                    if (deduplicator.isNew(file, contentHash, fileAttributes)) {
+                        ExtractionRequest request = new ExtractionRequest(file, contentHash);
+                        attributes.put(request, fileAttributes);
+                        hand(requests, request);
+                    }
+                } catch (Exception e) {
+                    stats.addFailed(1);
+                    System.err.println("Failed to process " + file.getName() + ": " + e.getMessage());
+                }
+            }
+        } catch (InterruptedException e) {
+            // The pipeline is being torn down
+            Thread.currentThread().interrupt();
+            return;
+        }
+
+        if (activeHashers.decrementAndGet() == 0) {
+            hand(requests, END_OF_REQUESTS);
+        }
+    }
+
+    /**
+     * Extract stage: groups waiting files into batches and starts them on the extractor,
+     * never exceeding the in-flight limit. Retries that are due go first. Once the input
+     * ends it waits for the persist stage to take every result, and for every retry to
+     * be dispatched and done, before signalling the end.
+     */
+    private void dispatch(ExecutorService extractors) {
+        // Times the extractor's work from when it starts running, not from when it was queued
+        Executor timedExtractors = task -> extractors.execute(() -> {
+            long start = System.nanoTime();
+            try {
+                task.run();
+            } finally {
+                stats.recordLatency(IngestStats.Stage.EXTRACT, System.nanoTime() - start);
+            }
+        });
+        Duration timeout = config.getExtractionTimeoutMillis() > 0
+            ? Duration.ofMillis(config.getExtractionTimeoutMillis())
+            : null;
+        int batchSize = Math.min(config.getExtractionBatchSize(), maxInFlight);
+
+        try {
+            while (true) {
+                // Wait for room before taking a file, so files pile up into fuller batches meanwhile
+                inFlight.acquire();
+                ExtractionRequest first = takeNext();
+                if (first == null) {
+                    inFlight.release();
+                    break;
+                }
+
+                List<ExtractionRequest> chunk = new ArrayList<>(batchSize);
+                chunk.add(first);
+                while (chunk.size() < batchSize && inFlight.tryAcquire()) {
+                    ExtractionRequest next = pollNext();
+                    if (next == null) {
+                        inFlight.release();
+                        break;
+                    }
+                    chunk.add(next);
+                }
+
+                if (cancelled) {
+                    for (ExtractionRequest request : chunk) {
+                        attempts.remove(request);
+                        attributes.remove(request);
+                    }
+                    inFlight.release(chunk.size());
+                    continue;
+                }
+                for (ExtractionRequest request : chunk) {
+                    attempts.merge(request, 1, Integer::sum);
+                    dispatched.accept(request);
+                }
+                submit(chunk, timeout, timedExtractors);
+            }
+
+            outcomes.add(END_OF_OUTCOMES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Waits for the next file to extract: a due retry, or else a new file.
+     * Called holding one in-flight permit.
+     *
+     * @return The file, or null once the input has ended and nothing is in flight or waiting for a retry
+     */
+    private ExtractionRequest takeNext() throws InterruptedException {
+        while (true) {
+            if (cancelled) {
+                retries.clear();
+            }
+            Retry retry = retries.poll();
+            if (retry != null) {
+                return retry.request();
+            }
+
+            if (!inputEnded) {
+                ExtractionRequest request = requests.poll(RETRY_POLL_MILLIS, TimeUnit.MILLISECONDS);
+                if (request == END_OF_REQUESTS) {
+                    inputEnded = true;
+                } else if (request != null) {
+                    return request;
+                }
+                continue;
+            }
+
+            // The persist stage schedules a retry before it returns the failed extraction's permit,
+            // so once every permit is back, a retry still to come is already in the queue
+            if (inFlight.availablePermits() == maxInFlight - 1 && retries.isEmpty()) {
+                return null;
+            }
+            retry = retries.poll(RETRY_POLL_MILLIS, TimeUnit.MILLISECONDS);
+            if (retry != null) {
+                return retry.request();
+            }
+        }
+    }
+
+    /**
+     * Takes the next file to extract if one is ready, without waiting.
+     */
+    private ExtractionRequest pollNext() {
+        Retry retry = retries.poll();
+        if (retry != null) {
+            return retry.request();
+        }
+        if (inputEnded) {
+            return null;
+        }
+        ExtractionRequest request = requests.poll();
+        if (request == END_OF_REQUESTS) {
+            inputEnded = true;
+            return null;
+        }
+        return request;
+    }
+
+    private void submit(List<ExtractionRequest> chunk, Duration timeout, Executor extractors) {
+        List<CompletableFuture<Map<String, Object>>> futures;
+        try {
+            futures = extractor.extractBatchAsync(chunk, timeout, extractors);
+        } catch (RuntimeException e) {
+            for (ExtractionRequest request : chunk) {
+                outcomes.add(new Outcome(request, null, e));
+            }
+            return;
+        }
+
+        for (int i = 0; i < chunk.size(); i++) {
+            ExtractionRequest request = chunk.get(i);
+            futures.get(i).whenComplete((data, error) -> {
+                if (error == null) {
+                    stats.incrementExtracted();
+                }
+                outcomes.add(new Outcome(request, data, error));
+            });
+        }
+    }
+
+    /**
+     * Persist stage: saves results in database batches on the calling thread.
+     * A partial batch is saved once no result has arrived for a short while,
+     * so a slow extractor does not hold finished receipts back.
+     */
+    private int persist() throws InterruptedException {
+        List<ExtractionResult> batch = new ArrayList<>();
+        int saved = 0;
+
+        while (true) {
+            Outcome outcome = outcomes.poll(IDLE_FLUSH_MILLIS, TimeUnit.MILLISECONDS);
+            if (outcome == null) {
+                saved += persister.save(batch);
+                continue;
+            }
+            if (outcome == END_OF_OUTCOMES) {
+                break;
+            }
+
+            if (outcome.error() != null) {
+                retryOrFail(outcome.request(), outcome.error());
+                continue;
+            }
+            inFlight.release();
+            attempts.remove(outcome.request());
+
+            batch.add(new ExtractionResult(outcome.request().file(), outcome.request().contentHash(),
+                attributes.remove(outcome.request()), outcome.data()));
+            if (batch.size() >= config.getDbBatchSize()) {
+                saved += persister.save(batch);
+            }
+        }
+
+        saved += persister.save(batch);
+        return saved;
+    }
+
+    /**
+     * Schedules another attempt of a transiently failed extraction, or gives up on it.
+     * The permit of the failed extraction is returned only afterwards, so the dispatcher
+     * never sees an empty pipeline while a retry is about to be scheduled.
+     */
+    private void retryOrFail(ExtractionRequest request, Throwable error) {
+        try {
+            int attemptsMade = attempts.getOrDefault(request, 1);
+            if (retryPolicy.shouldRetry(error, attemptsMade)) {
+                if (cancelled) {
+                    persister.interrupted(request, error, attemptsMade);
+                } else {
+                    long delayMillis = retryPolicy.delayMillis(attemptsMade);
+                    persister.retrying(request, error, attemptsMade, delayMillis);
+                    retries.add(new Retry(request, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(delayMillis)));
+                    return;
+                }
+            } else {
+                persister.failed(request, error, attemptsMade);
+            }
+            attempts.remove(request);
+            attributes.remove(request);
+        } finally {
+            inFlight.release();
+        }
+    }
+
+    /**
+     * Puts an item on a bounded queue, waiting for room. Gives up if the pipeline
+     * is torn down or the thread is interrupted.
+     *
+     * @return Whether the item was queued
+     */
+    private <T> boolean hand(BlockingQueue<T> queue, T item) {
+        try {
+            while (!stopped) {
+                if (queue.offer(item, HAND_OFF_POLL_MILLIS, TimeUnit.MILLISECONDS)) {
+                    return true;
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        return false;
+    }
+
+    /**
+     * Creates the extraction pool. Virtual threads are looked up reflectively
+     * because the project still targets Java 17.
+     */
+    private ExecutorService createWorkerPool() {
+        if (config.isUseVirtualThreads()) {
+            try {
+                return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+            } catch (ReflectiveOperationException e) {
+                System.out.println("Virtual threads not supported by this JVM. Using platform threads.");
+            }
+        }
+        return Executors.newFixedThreadPool(config.getWorkerThreads(), daemonThreads("receipt-extractor"));
+    }
+
+    private static ThreadFactory daemonThreads(String name) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, name + "-" + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
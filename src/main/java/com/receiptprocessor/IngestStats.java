@@ -0,0 +1,184 @@
+package com.receiptprocessor;
+
+import com.receiptprocessor.metrics.LatencyHistogram;
+import com.receiptprocessor.metrics.Metrics;
+
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Counters and per-stage latencies of a single ingestion run.
+ * Everything recorded here is also added to the process-wide {@link Metrics}.
+ */
+public class IngestStats {
+
+    public enum Stage {
+        SCAN(Metrics.Stage.SCAN),
+        HASH(Metrics.Stage.HASH),
+        EXTRACT(Metrics.Stage.EXTRACT),
+        DB_WRITE(Metrics.Stage.DB_WRITE);
+
+        private final Metrics.Stage metric;
+
+        Stage(Metrics.Stage metric) {
+            this.metric = metric;
+        }
+    }
+
+    private final AtomicInteger filesScanned = new AtomicInteger();
+    private final AtomicInteger skipped = new AtomicInteger();
+    private final AtomicInteger extracted = new AtomicInteger();
+    private final AtomicInteger failed = new AtomicInteger();
+    private final AtomicInteger retried = new AtomicInteger();
+    private final AtomicInteger stored = new AtomicInteger();
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+
+    private final long startNanos = System.nanoTime();
+    private volatile long endNanos;
+    private volatile boolean scanComplete;
+
+    public IngestStats() {
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    public void addScanned(int count) {
+        filesScanned.addAndGet(count);
+        Metrics.add(Metrics.Counter.FILES_SCANNED, count);
+    }
+
+    public void incrementSkipped() {
+        skipped.incrementAndGet();
+        Metrics.increment(Metrics.Counter.FILES_SKIPPED);
+    }
+
+    public void incrementExtracted() {
+        extracted.incrementAndGet();
+        Metrics.increment(Metrics.Counter.RECEIPTS_EXTRACTED);
+    }
+
+    public void addFailed(int count) {
+        failed.addAndGet(count);
+        Metrics.add(Metrics.Counter.FAILURES, count);
+    }
+
+    /**
+     * Counts an extraction that failed transiently and was scheduled to be tried again.
+     */
+    public void incrementRetried() {
+        retried.incrementAndGet();
+        Metrics.increment(Metrics.Counter.RETRIES);
+    }
+
+    public void addStored(int count) {
+        stored.addAndGet(count);
+        Metrics.add(Metrics.Counter.RECEIPTS_STORED, count);
+    }
+
+    /**
+     * Records how long one operation of a stage took.
+     *
+     * @param stage The pipeline stage
+     * @param nanos Duration in nanoseconds
+     */
+    public void recordLatency(Stage stage, long nanos) {
+        latencies.get(stage).record(nanos);
+        Metrics.record(stage.metric, nanos);
+    }
+
+    /**
+     * Marks that every file of the run has been found, so the scanned count is final.
+     */
+    public void markScanComplete() {
+        scanComplete = true;
+    }
+
+    public boolean isScanComplete() {
+        return scanComplete;
+    }
+
+    /**
+     * Marks the end of the run; elapsed time and throughput are measured up to here.
+     */
+    public void finish() {
+        endNanos = System.nanoTime();
+    }
+
+    public int getFilesScanned() {
+        return filesScanned.get();
+    }
+
+    public int getSkipped() {
+        return skipped.get();
+    }
+
+    public int getExtracted() {
+        return extracted.get();
+    }
+
+    public int getFailed() {
+        return failed.get();
+    }
+
+    public int getRetried() {
+        return retried.get();
+    }
+
+    public int getStored() {
+        return stored.get();
+    }
+
+    /**
+     * Number of scanned files that are done with: stored, skipped or failed.
+     */
+    public int getHandled() {
+        return stored.get() + skipped.get() + failed.get();
+    }
+
+    public double getElapsedSeconds() {
+        long end = endNanos != 0 ? endNanos : System.nanoTime();
+        return (end - startNanos) / 1e9;
+    }
+
+    public double getReceiptsPerSecond() {
+        double elapsed = getElapsedSeconds();
+        return elapsed > 0 ? stored.get() / elapsed : 0;
+    }
+
+    /**
+     * Summarizes the run: the file counts ({@code files_scanned}, {@code skipped}, {@code extracted},
+     * {@code stored}, {@code failed}, {@code retried}), {@code elapsed_seconds} and
+     * {@code receipts_per_second}, and under {@code stages} the count and p50/p99 in milliseconds
+     * of each stage, keyed by lower-case stage name.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("files_scanned", getFilesScanned());
+        summary.put("skipped", getSkipped());
+        summary.put("extracted", getExtracted());
+        summary.put("stored", getStored());
+        summary.put("failed", getFailed());
+        summary.put("retried", getRetried());
+        summary.put("elapsed_seconds", round(getElapsedSeconds()));
+        summary.put("receipts_per_second", round(getReceiptsPerSecond()));
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Map.Entry<Stage, LatencyHistogram> entry : latencies.entrySet()) {
+            LatencyHistogram histogram = entry.getValue();
+            Map<String, Object> stage = new LinkedHashMap<>();
+            stage.put("count", histogram.getCount());
+            stage.put("p50_ms", round(histogram.getP50Millis()));
+            stage.put("p99_ms", round(histogram.getP99Millis()));
+            stages.put(entry.getKey().name().toLowerCase(), stage);
+        }
+        summary.put("stages", stages);
+        return summary;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+}
@@ -1,14 +1,15 @@
 package com.receiptprocessor;
 
+import com.receiptprocessor.cli.CommandLine;
 import com.receiptprocessor.ui.MainWindow;
-import javax.swing.SwingUtilities;
 
 public class Main {
     public static void main(String[] args) {
-        // Launch GUI on the Event Dispatch Thread
-        SwingUtilities.invokeLater(() -> {
-            MainWindow window = new MainWindow();
-            window.setVisible(true);
-        });
+        // Any arguments select the headless command-line mode, which never loads Swing
+        if (args.length > 0) {
+            System.exit(CommandLine.run(args));
+        }
+
+        MainWindow.launch();
     }
 }
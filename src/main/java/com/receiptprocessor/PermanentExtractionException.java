@@ -0,0 +1,16 @@
+package com.receiptprocessor;
+
+/**
+ * Thrown by an extractor for a file that will never extract, e.g. one that is not a
+ * receipt or cannot be decoded. Such files are not retried.
+ */
+public class PermanentExtractionException extends Exception {
+
+    public PermanentExtractionException(String message) {
+        super(message);
+    }
+
+    public PermanentExtractionException(String message, Throwable cause) {
+        super(message, cause);
+    }
+}
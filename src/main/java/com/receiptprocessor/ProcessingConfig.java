@@ -0,0 +1,340 @@
+package com.receiptprocessor;
+
+/**
+ * Tuning options for a {@link ReceiptProcessor} run.
+ * The defaults extract on a single thread, as the original processor did.
+ */
+public class ProcessingConfig {
+    private int workerThreads = 1;
+    private boolean useVirtualThreads = false;
+    private int hashThreads = Runtime.getRuntime().availableProcessors();
+    private int scanThreads = Runtime.getRuntime().availableProcessors();
+    private boolean incrementalScan = false;
+    private int dbBatchSize = 50;
+    private int extractionBatchSize = 1;
+    private int maxInFlightExtractions = 0;
+    private long extractionTimeoutMillis = 300_000;
+    private int maxExtractionAttempts = 4;
+    private long retryBaseDelayMillis = 1_000;
+    private long retryMaxDelayMillis = 60_000;
+    private int pipelineQueueCapacity = 256;
+    private int gitCommitBatchSize = 100;
+    private long gitCommitWindowMillis = 30_000;
+    private boolean extractionCacheEnabled = true;
+    private String extractionCacheDirectory = "extraction-cache";
+    private long extractionCacheMemoryBytes = 32L * 1024 * 1024;
+    private String databasePath = "receipts.db";
+    private String scanManifestPath = "scan-manifest.tsv";
+    private boolean gitAutoCommit = true;
+    private VersioningMode versioningMode = VersioningMode.DATABASE;
+    private String exportDirectory = "receipts-export";
+
+    public ProcessingConfig() {
+    }
+
+    // Getters and Setters
+    public int getWorkerThreads() {
+        return workerThreads;
+    }
+
+    /**
+     * Sets the number of threads running blocking extractions.
+     */
+    public void setWorkerThreads(int workerThreads) {
+        if (workerThreads < 1) {
+            throw new IllegalArgumentException("workerThreads must be at least 1");
+        }
+        this.workerThreads = workerThreads;
+    }
+
+    public boolean isUseVirtualThreads() {
+        return useVirtualThreads;
+    }
+
+    /**
+     * Runs extractions on virtual threads when the running JVM supports them
+     * (Java 21+). Falls back to platform threads otherwise.
+     */
+    public void setUseVirtualThreads(boolean useVirtualThreads) {
+        this.useVirtualThreads = useVirtualThreads;
+    }
+
+    public int getHashThreads() {
+        return hashThreads;
+    }
+
+    /**
+     * Sets the number of threads fingerprinting files before deduplication.
+     */
+    public void setHashThreads(int hashThreads) {
+        if (hashThreads < 1) {
+            throw new IllegalArgumentException("hashThreads must be at least 1");
+        }
+        this.hashThreads = hashThreads;
+    }
+
+    public int getScanThreads() {
+        return scanThreads;
+    }
+
+    /**
+     * Sets the number of directory subtrees scanned concurrently.
+     */
+    public void setScanThreads(int scanThreads) {
+        if (scanThreads < 1) {
+            throw new IllegalArgumentException("scanThreads must be at least 1");
+        }
+        this.scanThreads = scanThreads;
+    }
+
+    public boolean isIncrementalScan() {
+        return incrementalScan;
+    }
+
+    /**
+     * Only considers files that are new or changed (by size and modification time)
+     * since the previous run, using the scan manifest.
+     */
+    public void setIncrementalScan(boolean incrementalScan) {
+        this.incrementalScan = incrementalScan;
+    }
+
+    public int getDbBatchSize() {
+        return dbBatchSize;
+    }
+
+    /**
+     * Sets how many extracted receipts are inserted per database transaction.
+     */
+    public void setDbBatchSize(int dbBatchSize) {
+        if (dbBatchSize < 1) {
+            throw new IllegalArgumentException("dbBatchSize must be at least 1");
+        }
+        this.dbBatchSize = dbBatchSize;
+    }
+
+    public int getExtractionBatchSize() {
+        return extractionBatchSize;
+    }
+
+    /**
+     * Sets how many files are handed to the extractor per batch request.
+     */
+    public void setExtractionBatchSize(int extractionBatchSize) {
+        if (extractionBatchSize < 1) {
+            throw new IllegalArgumentException("extractionBatchSize must be at least 1");
+        }
+        this.extractionBatchSize = extractionBatchSize;
+    }
+
+    public int getMaxInFlightExtractions() {
+        return maxInFlightExtractions;
+    }
+
+    /**
+     * Sets how many extractions may be started but not yet finished at once.
+     * 0 allows one full extraction batch per worker thread.
+     */
+    public void setMaxInFlightExtractions(int maxInFlightExtractions) {
+        if (maxInFlightExtractions < 0) {
+            throw new IllegalArgumentException("maxInFlightExtractions must not be negative");
+        }
+        this.maxInFlightExtractions = maxInFlightExtractions;
+    }
+
+    public long getExtractionTimeoutMillis() {
+        return extractionTimeoutMillis;
+    }
+
+    /**
+     * Sets how long a single extraction may take before it is abandoned and counted as failed.
+     * 0 waits indefinitely.
+     */
+    public void setExtractionTimeoutMillis(long extractionTimeoutMillis) {
+        if (extractionTimeoutMillis < 0) {
+            throw new IllegalArgumentException("extractionTimeoutMillis must not be negative");
+        }
+        this.extractionTimeoutMillis = extractionTimeoutMillis;
+    }
+
+    public int getMaxExtractionAttempts() {
+        return maxExtractionAttempts;
+    }
+
+    /**
+     * Sets how often a file is extracted before a transient failure is given up on.
+     * 1 turns retries off.
+     */
+    public void setMaxExtractionAttempts(int maxExtractionAttempts) {
+        if (maxExtractionAttempts < 1) {
+            throw new IllegalArgumentException("maxExtractionAttempts must be at least 1");
+        }
+        this.maxExtractionAttempts = maxExtractionAttempts;
+    }
+
+    public long getRetryBaseDelayMillis() {
+        return retryBaseDelayMillis;
+    }
+
+    /**
+     * Sets the wait before the first retry; it doubles with every further attempt.
+     */
+    public void setRetryBaseDelayMillis(long retryBaseDelayMillis) {
+        if (retryBaseDelayMillis < 0) {
+            throw new IllegalArgumentException("retryBaseDelayMillis must not be negative");
+        }
+        this.retryBaseDelayMillis = retryBaseDelayMillis;
+    }
+
+    public long getRetryMaxDelayMillis() {
+        return retryMaxDelayMillis;
+    }
+
+    /**
+     * Sets the longest wait between two attempts.
+     */
+    public void setRetryMaxDelayMillis(long retryMaxDelayMillis) {
+        if (retryMaxDelayMillis < 0) {
+            throw new IllegalArgumentException("retryMaxDelayMillis must not be negative");
+        }
+        this.retryMaxDelayMillis = retryMaxDelayMillis;
+    }
+
+    public int getPipelineQueueCapacity() {
+        return pipelineQueueCapacity;
+    }
+
+    /**
+     * Sets how many files may wait between two ingestion stages. A full queue
+     * blocks the stage before it, which bounds memory on large input folders.
+     */
+    public void setPipelineQueueCapacity(int pipelineQueueCapacity) {
+        if (pipelineQueueCapacity < 1) {
+            throw new IllegalArgumentException("pipelineQueueCapacity must be at least 1");
+        }
+        this.pipelineQueueCapacity = pipelineQueueCapacity;
+    }
+
+    public int getGitCommitBatchSize() {
+        return gitCommitBatchSize;
+    }
+
+    /**
+     * Sets the number of saved receipts that triggers a group commit.
+     */
+    public void setGitCommitBatchSize(int gitCommitBatchSize) {
+        if (gitCommitBatchSize < 1) {
+            throw new IllegalArgumentException("gitCommitBatchSize must be at least 1");
+        }
+        this.gitCommitBatchSize = gitCommitBatchSize;
+    }
+
+    public long getGitCommitWindowMillis() {
+        return gitCommitWindowMillis;
+    }
+
+    /**
+     * Sets how long saved receipts may wait before they are committed.
+     */
+    public void setGitCommitWindowMillis(long gitCommitWindowMillis) {
+        if (gitCommitWindowMillis < 0) {
+            throw new IllegalArgumentException("gitCommitWindowMillis must not be negative");
+        }
+        this.gitCommitWindowMillis = gitCommitWindowMillis;
+    }
+
+    public boolean isExtractionCacheEnabled() {
+        return extractionCacheEnabled;
+    }
+
+    /**
+     * Reuses extraction results of files whose contents were extracted before,
+     * by the same extractor version.
+     */
+    public void setExtractionCacheEnabled(boolean extractionCacheEnabled) {
+        this.extractionCacheEnabled = extractionCacheEnabled;
+    }
+
+    public String getExtractionCacheDirectory() {
+        return extractionCacheDirectory;
+    }
+
+    /**
+     * Sets where cached extraction results are stored on disk.
+     */
+    public void setExtractionCacheDirectory(String extractionCacheDirectory) {
+        this.extractionCacheDirectory = extractionCacheDirectory;
+    }
+
+    public long getExtractionCacheMemoryBytes() {
+        return extractionCacheMemoryBytes;
+    }
+
+    /**
+     * Sets the approximate size of the in-memory tier of the extraction cache.
+     */
+    public void setExtractionCacheMemoryBytes(long extractionCacheMemoryBytes) {
+        if (extractionCacheMemoryBytes < 0) {
+            throw new IllegalArgumentException("extractionCacheMemoryBytes must not be negative");
+        }
+        this.extractionCacheMemoryBytes = extractionCacheMemoryBytes;
+    }
+
+    public String getDatabasePath() {
+        return databasePath;
+    }
+
+    /**
+     * Sets the SQLite database file receipts are stored in.
+     */
+    public void setDatabasePath(String databasePath) {
+        this.databasePath = databasePath;
+    }
+
+    public String getScanManifestPath() {
+        return scanManifestPath;
+    }
+
+    /**
+     * Sets where the handled-file manifest of incremental scans is kept.
+     */
+    public void setScanManifestPath(String scanManifestPath) {
+        this.scanManifestPath = scanManifestPath;
+    }
+
+    public boolean isGitAutoCommit() {
+        return gitAutoCommit;
+    }
+
+    /**
+     * Commits and pushes the database to Git after receipts are saved.
+     */
+    public void setGitAutoCommit(boolean gitAutoCommit) {
+        this.gitAutoCommit = gitAutoCommit;
+    }
+
+    public VersioningMode getVersioningMode() {
+        return versioningMode;
+    }
+
+    /**
+     * Sets what auto-commit puts under version control: the database file, or the NDJSON export.
+     */
+    public void setVersioningMode(VersioningMode versioningMode) {
+        if (versioningMode == null) {
+            throw new IllegalArgumentException("versioningMode must not be null");
+        }
+        this.versioningMode = versioningMode;
+    }
+
+    public String getExportDirectory() {
+        return exportDirectory;
+    }
+
+    /**
+     * Sets where the NDJSON export is written in {@link VersioningMode#EXPORT} mode.
+     */
+    public void setExportDirectory(String exportDirectory) {
+        this.exportDirectory = exportDirectory;
+    }
+}
@@ -1,63 +1,541 @@
 package com.receiptprocessor;
 
 import com.receiptprocessor.db.DatabaseManager;
+import com.receiptprocessor.db.JournalEntry;
+import com.receiptprocessor.db.JournalState;
+import com.receiptprocessor.db.PageKey;
+import com.receiptprocessor.db.PendingReceipt;
+import com.receiptprocessor.db.QueryCancellation;
+import com.receiptprocessor.db.ReceiptCount;
+import com.receiptprocessor.db.ReceiptSort;
+import com.receiptprocessor.db.Rollup;
+import com.receiptprocessor.db.RollupPeriod;
+import com.receiptprocessor.export.ReceiptExportWriter;
+import com.receiptprocessor.model.Receipt;
+import com.receiptprocessor.model.ReceiptSummary;
 
 import java.io.File;
+import java.nio.file.Path;
+import java.nio.file.attribute.BasicFileAttributes;
 import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
 
-public class ReceiptProcessor {
+public class ReceiptProcessor implements AutoCloseable {
     
     private final DatabaseManager dbManager;
     private final FileScanner fileScanner;
+    private final FileFingerprinter fingerprinter;
+    private final ScanManifest scanManifest;
+    private final IngestJournal journal;
     private final IReceiptExtractor extractor;
-    private final GitAutoCommit gitAutoCommit;
+    private final CachingReceiptExtractor extractionCache;
+    private final GitCommitScheduler gitCommitScheduler; // null when auto-commit is off
+    private final ReceiptExportWriter exporter; // null unless versioning the export
+    private final ProcessingConfig config;
+    private final AtomicBoolean closed = new AtomicBoolean(false);
+    // Closes the processor if the JVM exits first; removed on close so closed processors can be collected
+    private final Thread shutdownHook = new Thread(this::close, "receipt-processor-shutdown");
+
+    // Statistics of the run in progress, or of the last finished run
+    private volatile IngestStats runStats = new IngestStats();
+    private volatile IngestPipeline currentPipeline;
+    private volatile IngestListener ingestListener;
+
+    // When the journal was last brought up to date for a Git commit, in epoch milliseconds
+    private volatile long journalCheckpointMillis;
+
+    // Hashes of new receipts between deduplication and storage in the current run
+    private final Set<String> pendingHashes = ConcurrentHashMap.newKeySet();
 
     public ReceiptProcessor() {
-        this.dbManager = new DatabaseManager();
-        this.fileScanner = new FileScanner();
-        this.extractor = new StubReceiptExtractor(); // Using stub implementation for now
-        this.gitAutoCommit = new GitAutoCommit();
+        this(new ProcessingConfig());
+    }
+
+    public ReceiptProcessor(ProcessingConfig config) {
+        this(config, new StubReceiptExtractor()); // Using stub implementation for now
+    }
+
+    /**
+     * @param config Processing options
+     * @param baseExtractor The extractor to use, e.g. an OCR/AI client or a local stand-in
+     */
+    public ReceiptProcessor(ProcessingConfig config, IReceiptExtractor baseExtractor) {
+        this.config = config;
+        this.dbManager = new DatabaseManager(config.getDatabasePath());
+        this.fileScanner = new FileScanner(config.getScanThreads());
+        this.fingerprinter = new FileFingerprinter();
+        this.scanManifest = new ScanManifest(Path.of(config.getScanManifestPath()));
+        this.journal = new IngestJournal(dbManager);
+        if (config.isExtractionCacheEnabled()) {
+            this.extractionCache = new CachingReceiptExtractor(baseExtractor, fingerprinter,
+                Path.of(config.getExtractionCacheDirectory()), config.getExtractionCacheMemoryBytes());
+            this.extractor = extractionCache;
+        } else {
+            this.extractionCache = null;
+            this.extractor = baseExtractor;
+        }
+        this.exporter = config.getVersioningMode() == VersioningMode.EXPORT
+            ? new ReceiptExportWriter(Path.of(config.getExportDirectory()))
+            : null;
+        String versionedPath = exporter != null ? config.getExportDirectory() : config.getDatabasePath();
+        this.gitCommitScheduler = config.isGitAutoCommit()
+            ? new GitCommitScheduler(new GitAutoCommit(versionedPath),
+                config.getGitCommitBatchSize(), config.getGitCommitWindowMillis(), this::prepareCommit,
+                this::markJournalCommitted)
+            : null;
         
         try {
             dbManager.initialize();
         } catch (Exception e) {
             throw new RuntimeException("Failed to initialize database", e);
         }
+
+        if (exporter != null) {
+            try {
+                exporter.open();
+            } catch (Exception e) {
+                throw new RuntimeException("Failed to open receipt export", e);
+            }
+        }
+
+        try {
+            journal.load();
+        } catch (Exception e) {
+            System.err.println("Failed to load ingestion journal, retrying failed files: " + e.getMessage());
+        }
+
+        try {
+            scanManifest.load();
+        } catch (Exception e) {
+            System.err.println("Failed to load scan manifest, doing a full scan: " + e.getMessage());
+        }
+
+        // Make sure pending receipts are committed when the JVM exits
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
     }
 
     /**
-     * Processes all receipts in the specified directory.
+     * Processes all receipts in the specified directory tree.
+     * In incremental mode only files that are new or changed since the last run are considered.
      * 
      * @param inputDirectory The directory containing receipt files
      * @return Number of receipts processed
      */
-    public int processReceipts(File inputDirectory) throws Exception {
-        List<File> files = fileScanner.scanDirectory(inputDirectory);
-        int processedCount = 0;
+    public synchronized int processReceipts(File inputDirectory) throws Exception {
+        return scanAndProcess(inputDirectory, config.isIncrementalScan() ? scanManifest : null);
+    }
 
-        for (File file : files) {
-            // Skip if already processed
-            if (dbManager.receiptExists(file.getName())) {
-                continue;
+    /**
+     * Processes only the files in the directory tree that are new or changed
+     * since they were last handled, regardless of the incremental setting.
+     * 
+     * @param inputDirectory The directory containing receipt files
+     * @return Number of receipts processed
+     */
+    public synchronized int processChangedReceipts(File inputDirectory) throws Exception {
+        return scanAndProcess(inputDirectory, scanManifest);
+    }
+
+    private int scanAndProcess(File inputDirectory, ScanManifest manifest) throws Exception {
+        return run(sink -> fileScanner.scanDirectory(inputDirectory, manifest, sink));
+    }
+
+    /**
+     * Processes the given receipt files. Already stored receipts are skipped.
+     * Runs are serialized, so the UI, the folder watcher and the CLI can share one processor.
+     * 
+     * @param files The receipt files to process
+     * @return Number of receipts processed
+     */
+    public synchronized int processFiles(List<File> files) throws Exception {
+        return run(sink -> files.forEach(file -> sink.accept(file, null)));
+    }
+
+    /**
+     * Finishes the files an interrupted run had accepted but not stored, including those
+     * waiting for a retry, and files re-queued after a failure, straight from the
+     * ingestion journal without a rescan.
+     * Files that have disappeared since are marked failed.
+     *
+     * @return Number of receipts processed
+     */
+    public synchronized int resumeInterrupted() throws Exception {
+        List<File> files = new ArrayList<>();
+        for (JournalEntry entry : dbManager.getJournalEntries(JournalState.DISCOVERED, JournalState.EXTRACTING,
+                JournalState.RETRYING)) {
+            File file = new File(entry.path());
+            if (!file.isFile()) {
+                journal.failed(file, entry.contentHash(), "File no longer exists");
+            } else if (entry.contentHash() != null && dbManager.receiptExistsByHash(entry.contentHash())) {
+                // Stored just before the interruption, before the journal caught up
+                journal.stored(file, entry.contentHash());
+            } else {
+                files.add(file);
             }
+        }
+        journal.flush();
 
-            try {
-                // Get dictionary output from extraction function
-                Map<String, Object> data = extractor.extractReceiptData(file);
-                
-                // Save to database
-                dbManager.saveReceiptData(file.getName(), data);
-                processedCount++;
-                
-                // Auto-commit to Git after each receipt is processed
-                gitAutoCommit.commitAndPush("Added receipt: " + file.getName());
-                
-            } catch (Exception e) {
-                System.err.println("Failed to process " + file.getName() + ": " + e.getMessage());
+        if (files.isEmpty()) {
+            return 0;
+        }
+        return run(sink -> files.forEach(file -> sink.accept(file, null)));
+    }
+
+    /**
+     * Counts the files waiting in the journal for {@link #resumeInterrupted()}.
+     *
+     * @return Number of discovered, extracting or retrying files
+     */
+    public int countInterrupted() throws Exception {
+        Map<JournalState, Integer> counts = dbManager.countJournalEntries();
+        return counts.get(JournalState.DISCOVERED) + counts.get(JournalState.EXTRACTING)
+            + counts.get(JournalState.RETRYING);
+    }
+
+    /**
+     * Counts the files in each state of the ingestion journal.
+     *
+     * @return Number of files per state
+     */
+    public Map<JournalState, Integer> getJournalCounts() throws Exception {
+        return dbManager.countJournalEntries();
+    }
+
+    /**
+     * Gets the files whose extraction or saving failed. Scans skip them until they are re-queued.
+     *
+     * @return The failed files with attempt counts and last errors, oldest first
+     */
+    public List<JournalEntry> getFailedFiles() throws Exception {
+        return dbManager.getJournalEntries(JournalState.FAILED);
+    }
+
+    /**
+     * Puts failed files back in line; the next {@link #resumeInterrupted()} or scan processes them.
+     *
+     * @param paths Paths of the files to re-queue, or null for all failed files
+     * @return Number of files re-queued
+     */
+    public int requeueFailed(List<String> paths) throws Exception {
+        int requeued = dbManager.requeueFailed(paths);
+        journal.requeued(paths);
+        return requeued;
+    }
+
+    private int run(IngestPipeline.Source source) throws Exception {
+        IngestStats stats = new IngestStats();
+        runStats = stats;
+        IngestPipeline pipeline = new IngestPipeline(config, stats, fingerprinter, extractor, source,
+            this::isNewReceipt, journal::extracting, new IngestPipeline.Persister() {
+                @Override
+                public int save(List<IngestPipeline.ExtractionResult> batch) {
+                    return saveBatch(batch);
+                }
+
+                @Override
+                public void retrying(ExtractionRequest request, Throwable error, int attempts, long delayMillis) {
+                    runStats.incrementRetried();
+                    journal.retrying(request.file(), request.contentHash(), describe(error));
+                    System.err.println("Attempt " + attempts + " to process " + request.file().getName()
+                        + " failed, retrying in " + delayMillis + " ms: " + describe(error));
+                }
+
+                @Override
+                public void interrupted(ExtractionRequest request, Throwable error, int attempts) {
+                    journal.retrying(request.file(), request.contentHash(), describe(error));
+                    System.err.println("Attempt " + attempts + " to process " + request.file().getName()
+                        + " failed, left for resume: " + describe(error));
+                }
+
+                @Override
+                public void failed(ExtractionRequest request, Throwable error, int attempts) {
+                    runStats.addFailed(1);
+                    String message = attempts > 1
+                        ? "Gave up after " + attempts + " attempts: " + describe(error)
+                        : describe(error);
+                    journal.failed(request.file(), request.contentHash(), message);
+                    System.err.println("Failed to process " + request.file().getName() + ": " + message);
+                }
+            });
+
+        currentPipeline = pipeline;
+        try {
+            int processedCount = pipeline.run();
+
+            // Commit whatever this run saved without waiting for the window
+            if (gitCommitScheduler != null) {
+                gitCommitScheduler.flush();
+            } else if (exporter != null) {
+                try {
+                    exportReceipts();
+                } catch (RuntimeException e) {
+                    System.err.println(e.getMessage());
+                }
             }
+            saveScanManifest();
+            return processedCount;
+        } finally {
+            currentPipeline = null;
+            journal.flush();
+            pendingHashes.clear();
+            stats.finish();
+        }
+    }
+
+    /**
+     * Stops the run in progress, if any: no further files are picked up, while
+     * extractions already in flight are still saved. Does not wait for the run to end.
+     */
+    public void cancel() {
+        IngestPipeline pipeline = currentPipeline;
+        if (pipeline != null) {
+            pipeline.cancel();
+        }
+    }
+
+    /**
+     * Gets the statistics of the run in progress, or of the last finished run.
+     * 
+     * @return Counters and per-stage latencies
+     */
+    public IngestStats getLastRunStats() {
+        return runStats;
+    }
+
+    /**
+     * Decides whether a fingerprinted file needs extraction. Renamed or moved receipts
+     * are recognized by their hash and never reach the extractor, and a copy of a file
+     * already on its way through the pipeline is skipped, as is a file that failed before
+     * and has not been re-queued. Called by the hashing threads.
+     * 
+     * @param file The scanned receipt file
+     * @param contentHash SHA-256 fingerprint of the file contents
+     * @param attributes The file's attributes from before it was hashed
+     * @return true if the file should be extracted
+     */
+    private boolean isNewReceipt(File file, String contentHash, BasicFileAttributes attributes) throws Exception {
+        IngestStats stats = runStats;
+
+        if (journal.isFailed(file, contentHash)) {
+            stats.incrementSkipped();
+            return false;
+        }
+
+        // Skip if already processed, or a copy is already being processed in this run
+        if (dbManager.receiptExistsByHash(contentHash) || !pendingHashes.add(contentHash)) {
+            stats.incrementSkipped();
+            markHandled(file, attributes);
+            return false;
+        }
+
+        // Receipts stored before hashing existed are matched by filename once
+        if (dbManager.claimUnhashedReceipt(file.getName(), contentHash)) {
+            stats.incrementSkipped();
+            markHandled(file, attributes);
+            return false;
         }
+        journal.discovered(file, contentHash);
+        return true;
+    }
 
-        return processedCount;
+    private static String describe(Throwable error) {
+        Throwable cause = RetryPolicy.unwrap(error);
+        if (cause instanceof TimeoutException) {
+            return "extraction timed out";
+        }
+        return cause.getMessage();
+    }
+
+    /**
+     * Saves a batch in one transaction and queues it for the next Git commit.
+     * If the batch fails, its receipts are retried one by one so a single bad
+     * receipt does not lose the others. The batch is cleared afterwards.
+     * Journal changes queued since the last call are written with every call, including
+     * the idle calls with an empty batch.
+     * 
+     * @param batch The extracted receipts to save
+     * @return Number of receipts saved
+     */
+    private int saveBatch(List<IngestPipeline.ExtractionResult> batch) {
+        if (batch.isEmpty()) {
+            journal.flush();
+            return 0;
+        }
+
+        List<PendingReceipt> receipts = new ArrayList<>(batch.size());
+        for (IngestPipeline.ExtractionResult result : batch) {
+            receipts.add(new PendingReceipt(result.file().getName(), result.contentHash(), result.data()));
+        }
+
+        List<IngestPipeline.ExtractionResult> saved = new ArrayList<>(batch);
+        List<Integer> savedIds = new ArrayList<>(batch.size());
+        long start = System.nanoTime();
+        try {
+            savedIds.addAll(dbManager.saveReceiptsBatch(receipts));
+        } catch (Exception batchError) {
+            saved.clear();
+            for (IngestPipeline.ExtractionResult result : batch) {
+                try {
+                    savedIds.add(dbManager.saveReceiptData(result.file().getName(), result.contentHash(),
+                        result.data()));
+                    saved.add(result);
+                } catch (Exception e) {
+                    runStats.addFailed(1);
+                    journal.failed(result.file(), result.contentHash(), e.getMessage());
+                    System.err.println("Failed to process " + result.file().getName() + ": " + e.getMessage());
+                }
+            }
+        }
+        runStats.recordLatency(IngestStats.Stage.DB_WRITE, System.nanoTime() - start);
+        runStats.addStored(saved.size());
+        batch.clear();
+
+        // Queue for the next group commit to Git
+        for (IngestPipeline.ExtractionResult result : saved) {
+            if (gitCommitScheduler != null) {
+                gitCommitScheduler.receiptSaved(result.file().getName());
+            }
+            markHandled(result.file(), result.attributes());
+            journal.stored(result.file(), result.contentHash());
+            // Stored now, so later copies are recognized by the database check
+            pendingHashes.remove(result.contentHash());
+        }
+        journal.flush();
+        notifySaved(savedIds);
+        return saved.size();
+    }
+
+    /**
+     * Hands the list rows of newly stored receipts to the ingest listener, if one is set.
+     * A failing listener is logged; the receipts are stored either way.
+     */
+    private void notifySaved(List<Integer> ids) {
+        IngestListener listener = ingestListener;
+        if (listener == null || ids.isEmpty()) {
+            return;
+        }
+        try {
+            listener.receiptsSaved(dbManager.getReceiptSummaries(ids));
+        } catch (Exception e) {
+            System.err.println("Ingest listener failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Sets the listener told about receipts as they are stored, by any run of this processor.
+     *
+     * @param listener The listener, or null for none
+     */
+    public void setIngestListener(IngestListener listener) {
+        this.ingestListener = listener;
+    }
+
+    /**
+     * Records a file in the scan manifest so incremental scans skip it.
+     *
+     * @param attributes The file's attributes from before it was hashed
+     */
+    private void markHandled(File file, BasicFileAttributes attributes) {
+        scanManifest.record(file.toPath(), attributes.size(), attributes.lastModifiedTime().toMillis());
+    }
+
+    private void saveScanManifest() {
+        try {
+            scanManifest.save();
+        } catch (Exception e) {
+            System.err.println("Failed to save scan manifest: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the processing configuration. Changes to the pipeline settings (threads, batch
+     * sizes, queue capacity, timeouts, retries, incremental scanning) apply to the next run.
+     * Settings read by the constructor are fixed for the life of this processor: the database,
+     * scan manifest and export paths, scan threads, the extraction cache, the versioning mode,
+     * and the Git auto-commit settings. Create a new processor to change those.
+     * 
+     * @return The mutable processing configuration
+     */
+    public ProcessingConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * Flushes pending Git commits, waits for outstanding pushes and closes the database.
+     * A run in progress is cancelled and drained first. Safe to call more than once.
+     */
+    @Override
+    public void close() {
+        cancel();
+        synchronized (this) {
+            if (closed.compareAndSet(false, true)) {
+                try {
+                    Runtime.getRuntime().removeShutdownHook(shutdownHook);
+                } catch (IllegalStateException e) {
+                    // The JVM is shutting down; this may be the hook itself
+                }
+                if (gitCommitScheduler != null) {
+                    gitCommitScheduler.shutdown();
+                }
+                journal.flush();
+                try {
+                    dbManager.close();
+                } catch (Exception e) {
+                    System.err.println("Failed to close database: " + e.getMessage());
+                }
+            }
+        }
+    }
+
+    /**
+     * Brings the versioned files on disk up to date before they are committed: appends
+     * new receipts to the export, or checkpoints receipts.db, journal included.
+     * Runs on the commit thread, so the export is never written while Git stages it.
+     */
+    private void prepareCommit() {
+        journal.flush();
+        journalCheckpointMillis = System.currentTimeMillis();
+        if (exporter != null) {
+            exportReceipts();
+            return;
+        }
+        try {
+            dbManager.checkpoint();
+        } catch (Exception e) {
+            throw new RuntimeException("Database checkpoint failed", e);
+        }
+    }
+
+    /**
+     * Appends the receipts stored since the last export to the NDJSON shards.
+     */
+    private void exportReceipts() {
+        try {
+            exporter.append(dbManager);
+        } catch (Exception e) {
+            throw new RuntimeException("Receipt export failed: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Marks the receipts stored before the last checkpoint as committed to Git.
+     */
+    private void markJournalCommitted() {
+        try {
+            dbManager.markJournalCommitted(journalCheckpointMillis);
+        } catch (Exception e) {
+            throw new RuntimeException("Failed to update ingestion journal", e);
+        }
+    }
+
+    /**
+     * Gets the hit, miss and eviction counters of the extraction cache.
+     * 
+     * @return The counters as an ordered map, or null if the cache is disabled
+     */
+    public Map<String, Object> getExtractionCacheStats() {
+        return extractionCache != null ? extractionCache.toMap() : null;
     }
 
     /**
@@ -69,6 +547,76 @@ public class ReceiptProcessor {
         return dbManager.getAllReceipts();
     }
 
+    /**
+     * Gets one page of the receipts list in the given order.
+     * 
+     * @param sort The column to sort by
+     * @param ascending Sort direction
+     * @param after Key of the last row of the previous page; null starts at the first row
+     * @param limit Maximum number of receipts to return
+     * @return Receipt summaries in list order
+     */
+    public List<ReceiptSummary> getReceiptPage(ReceiptSort sort, boolean ascending, PageKey after, int limit)
+            throws Exception {
+        return dbManager.getReceiptPage(sort, ascending, after, limit);
+    }
+
+    /**
+     * Finds the page key a given number of rows into the receipts list.
+     * 
+     * @param sort The column to sort by
+     * @param ascending Sort direction
+     * @param after Start after this key; null starts at the first row
+     * @param offset Number of receipts to skip
+     * @return The key at that position, or null if the list is shorter
+     */
+    public PageKey findPageKeyAt(ReceiptSort sort, boolean ascending, PageKey after, int offset) throws Exception {
+        return dbManager.findPageKeyAt(sort, ascending, after, offset);
+    }
+
+    /**
+     * Searches receipts by filename, store name and item names.
+     * 
+     * @param text The search text; each word may be the start of a word
+     * @param limit Maximum number of receipts to return
+     * @return Matching receipt summaries, best matches first
+     */
+    public List<ReceiptSummary> searchReceipts(String text, int limit) throws Exception {
+        return dbManager.searchReceipts(text, limit);
+    }
+
+    /**
+     * Searches receipts like {@link #searchReceipts(String, int)}; the search can be
+     * cancelled from another thread while it runs.
+     * 
+     * @param text The search text; each word may be the start of a word
+     * @param limit Maximum number of receipts to return
+     * @param cancellation Stops the search inside the database when cancelled
+     * @return Matching receipt summaries, best matches first
+     */
+    public List<ReceiptSummary> searchReceipts(String text, int limit, QueryCancellation cancellation)
+            throws Exception {
+        return dbManager.searchReceipts(text, limit, cancellation);
+    }
+
+    /**
+     * Counts the stored receipts.
+     * 
+     * @return Number of receipts
+     */
+    public int countReceipts() throws Exception {
+        return dbManager.countReceipts();
+    }
+
+    /**
+     * Counts the stored receipts and finds the newest ID in the same read.
+     * 
+     * @return The count and the highest ID
+     */
+    public ReceiptCount countReceiptsWithMaxId() throws Exception {
+        return dbManager.countReceiptsWithMaxId();
+    }
+
     /**
      * Gets the raw data for a specific receipt.
      * 
@@ -79,6 +627,26 @@ public class ReceiptProcessor {
         return dbManager.getReceiptData(receiptId);
     }
 
+    /**
+     * Gets a receipt bound to the typed model.
+     * 
+     * @param receiptId The receipt ID
+     * @return The receipt with its items, or null if it does not exist
+     */
+    public Receipt getReceipt(int receiptId) throws Exception {
+        return dbManager.getReceipt(receiptId);
+    }
+
+    /**
+     * Gets the stored price, protein and calorie totals for every bucket of a period.
+     * 
+     * @param period Day, week, month or store
+     * @return The buckets ordered by key
+     */
+    public List<Rollup> getRollups(RollupPeriod period) throws Exception {
+        return dbManager.getRollups(period);
+    }
+
     /**
      * Stub implementation of IReceiptExtractor.
      * Returns mock dictionary data for testing the pipeline.
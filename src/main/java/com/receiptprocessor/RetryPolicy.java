@@ -0,0 +1,77 @@
+package com.receiptprocessor;
+
+import java.io.FileNotFoundException;
+import java.nio.file.AccessDeniedException;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Decides whether a failed extraction is tried again, and when.
+ * <p>
+ * Failures are transient unless they say otherwise: a remote OCR backend that times out
+ * or refuses connections usually recovers, while a {@link PermanentExtractionException},
+ * a missing or unreadable file, or an abandoned extraction will fail the same way again.
+ * Delays double with every attempt up to a cap, and half of each delay is random so
+ * files that failed together do not all come back at the same moment.
+ */
+class RetryPolicy {
+
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+
+    RetryPolicy(int maxAttempts, long baseDelayMillis, long maxDelayMillis) {
+        this.maxAttempts = maxAttempts;
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+    }
+
+    static RetryPolicy of(ProcessingConfig config) {
+        return new RetryPolicy(config.getMaxExtractionAttempts(), config.getRetryBaseDelayMillis(),
+            config.getRetryMaxDelayMillis());
+    }
+
+    /**
+     * @param error The failure of the last attempt
+     * @param attempts Number of attempts made so far
+     * @return Whether to try again
+     */
+    boolean shouldRetry(Throwable error, int attempts) {
+        return attempts < maxAttempts && !isPermanent(error);
+    }
+
+    /**
+     * Picks the wait before the next attempt: between half and all of
+     * {@code baseDelay * 2^(attempts - 1)}, capped at the maximum delay.
+     *
+     * @param attempts Number of attempts made so far, at least 1
+     */
+    long delayMillis(int attempts) {
+        long delay = (long) Math.min(maxDelayMillis, baseDelayMillis * Math.pow(2, attempts - 1));
+        return delay / 2 + ThreadLocalRandom.current().nextLong(delay - delay / 2 + 1);
+    }
+
+    static boolean isPermanent(Throwable error) {
+        Throwable cause = unwrap(error);
+        return cause instanceof PermanentExtractionException
+            || cause instanceof FileNotFoundException
+            || cause instanceof NoSuchFileException
+            || cause instanceof AccessDeniedException
+            || cause instanceof CancellationException;
+    }
+
+    /**
+     * Gets the extractor's own exception out of the wrappers added by futures.
+     */
+    static Throwable unwrap(Throwable error) {
+        Throwable cause = error;
+        while ((cause instanceof CompletionException || cause instanceof ExecutionException)
+                && cause.getCause() != null) {
+            cause = cause.getCause();
+        }
+        return cause;
+    }
+}
@@ -0,0 +1,130 @@
+package com.receiptprocessor;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers the size and modification time of every file already handled,
+ * so incremental scans only yield new or changed files.
+ * Stored as a tab-separated text file next to the database.
+ */
+public class ScanManifest {
+
+    private static final String DEFAULT_MANIFEST_PATH = "scan-manifest.tsv";
+
+    private final Path manifestFile;
+    private final Map<String, Entry> entries = new ConcurrentHashMap<>();
+    private volatile boolean dirty;
+
+    public ScanManifest() {
+        this(Path.of(DEFAULT_MANIFEST_PATH));
+    }
+
+    /**
+     * @param manifestFile Where the manifest is loaded from and saved to
+     */
+    public ScanManifest(Path manifestFile) {
+        this.manifestFile = manifestFile;
+    }
+
+    /**
+     * Loads the manifest from disk. A missing file leaves the manifest empty.
+     */
+    public void load() throws IOException {
+        entries.clear();
+        if (!Files.exists(manifestFile)) {
+            return;
+        }
+
+        try (BufferedReader reader = Files.newBufferedReader(manifestFile, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                // path \t size \t mtime; the path is last-split so it may contain tabs
+                int mtimeTab = line.lastIndexOf('\t');
+                int sizeTab = mtimeTab > 0 ? line.lastIndexOf('\t', mtimeTab - 1) : -1;
+                if (sizeTab <= 0) {
+                    continue;
+                }
+                try {
+                    long size = Long.parseLong(line.substring(sizeTab + 1, mtimeTab));
+                    long modified = Long.parseLong(line.substring(mtimeTab + 1));
+                    entries.put(line.substring(0, sizeTab), new Entry(size, modified));
+                } catch (NumberFormatException e) {
+                    System.err.println("Skipping malformed manifest line: " + line);
+                }
+            }
+        }
+        dirty = false;
+    }
+
+    /**
+     * Writes the manifest to disk if it changed since the last load or save, leaving out
+     * files that no longer exist. The file is replaced atomically so a crash never leaves
+     * it half-written.
+     */
+    public synchronized void save() throws IOException {
+        if (!dirty) {
+            return;
+        }
+
+        entries.keySet().removeIf(path -> !Files.exists(Path.of(path)));
+
+        Path tempFile = manifestFile.resolveSibling(manifestFile.getFileName() + ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(tempFile, StandardCharsets.UTF_8)) {
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write('\t');
+                writer.write(Long.toString(entry.getValue().size()));
+                writer.write('\t');
+                writer.write(Long.toString(entry.getValue().modified()));
+                writer.newLine();
+            }
+        }
+        Files.move(tempFile, manifestFile, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        dirty = false;
+    }
+
+    /**
+     * Checks whether a file is new or changed since it was last recorded.
+     *
+     * @param path Absolute path of the file
+     * @param size Current size in bytes
+     * @param modified Current modification time in milliseconds
+     * @return true if the file should be processed
+     */
+    public boolean isNewOrChanged(Path path, long size, long modified) {
+        Entry entry = entries.get(path.toString());
+        return entry == null || entry.size() != size || entry.modified() != modified;
+    }
+
+    /**
+     * Records a file as handled. Pass the size and modification time from before the file
+     * was hashed, not its current ones: if it was rewritten since, the recorded version no
+     * longer matches and the next incremental scan looks at it again.
+     *
+     * @param path The file that was handled
+     * @param size Size in bytes when the file was scanned
+     * @param modified Modification time in milliseconds when the file was scanned
+     */
+    public void record(Path path, long size, long modified) {
+        entries.put(path.toAbsolutePath().toString(), new Entry(size, modified));
+        dirty = true;
+    }
+
+    /**
+     * @return Number of files in the manifest
+     */
+    public int size() {
+        return entries.size();
+    }
+
+    private record Entry(long size, long modified) {
+    }
+}
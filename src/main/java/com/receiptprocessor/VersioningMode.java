@@ -0,0 +1,14 @@
+package com.receiptprocessor;
+
+/**
+ * What Git auto-commit versions.
+ */
+public enum VersioningMode {
+    /** The SQLite database file itself; simple, but every commit stores a new copy of it. */
+    DATABASE,
+    /**
+     * An append-only NDJSON export sharded by month, so commits only add the new receipts.
+     * The database can be rebuilt from it.
+     */
+    EXPORT
+}
@@ -0,0 +1,283 @@
+package com.receiptprocessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.IntConsumer;
+
+import static java.nio.file.StandardWatchEventKinds.*;
+
+/**
+ * Continuously ingests receipts dropped into a directory tree.
+ * New files are debounced until their size and modification time stop changing,
+ * then handed to {@link ReceiptProcessor#processFiles(List)} in small batches.
+ * If the watch service overflows, an incremental rescan picks up anything missed.
+ */
+public class WatchFolderService implements AutoCloseable {
+
+    private static final long POLL_INTERVAL_MILLIS = 250;
+
+    private final ReceiptProcessor processor;
+    private final Path root;
+    private final long debounceMillis;
+
+    private final Map<WatchKey, Path> watchedDirectories = new HashMap<>();
+    private final Map<Path, PendingFile> pendingFiles = new HashMap<>();
+    private final ExecutorService ingestExecutor;
+
+    private volatile IntConsumer onProcessed = count -> { };
+    private WatchService watchService;
+    private Thread watchThread;
+    private volatile boolean running;
+    private boolean rescanRequested;
+
+    /**
+     * @param processor Processor that stores the receipts
+     * @param root Directory tree to watch
+     * @param debounceMillis How long a file must stay unchanged before it is ingested
+     */
+    public WatchFolderService(ReceiptProcessor processor, File root, long debounceMillis) {
+        this.processor = processor;
+        this.root = root.toPath().toAbsolutePath();
+        this.debounceMillis = debounceMillis;
+        this.ingestExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "watch-folder-ingest");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Sets a callback invoked with the number of receipts stored after each ingest.
+     * Called on the ingest thread.
+     */
+    public void setOnProcessed(IntConsumer onProcessed) {
+        this.onProcessed = onProcessed;
+    }
+
+    /**
+     * Registers the directory tree and starts watching. Files that arrived while
+     * nothing was watching are picked up by an initial incremental rescan.
+     */
+    public synchronized void start() throws IOException {
+        if (running) {
+            return;
+        }
+
+        watchService = root.getFileSystem().newWatchService();
+        registerTree(root, false);
+        running = true;
+
+        rescanRequested = true;
+        watchThread = new Thread(this::watchLoop, "watch-folder");
+        watchThread.setDaemon(true);
+        watchThread.start();
+        System.out.println("Watching " + root + " for new receipts");
+    }
+
+    /**
+     * Stops watching and waits for the ingest in progress to finish.
+     */
+    @Override
+    public synchronized void close() {
+        if (!running) {
+            return;
+        }
+        running = false;
+
+        try {
+            watchService.close();
+        } catch (IOException e) {
+            System.err.println("Failed to close watch service: " + e.getMessage());
+        }
+        try {
+            watchThread.join(TimeUnit.SECONDS.toMillis(5));
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        ingestExecutor.shutdown();
+        try {
+            ingestExecutor.awaitTermination(1, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    public boolean isRunning() {
+        return running;
+    }
+
+    private void watchLoop() {
+        while (running) {
+            try {
+                WatchKey key = watchService.poll(POLL_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+                while (key != null) {
+                    handleEvents(key);
+                    key = watchService.poll();
+                }
+                submitReadyFiles();
+            } catch (ClosedWatchServiceException e) {
+                break;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (Exception e) {
+                System.err.println("Watch folder error: " + e.getMessage());
+            }
+        }
+    }
+
+    private void handleEvents(WatchKey key) {
+        Path directory = watchedDirectories.get(key);
+
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (event.kind() == OVERFLOW) {
+                // Events were dropped; recover with an incremental rescan
+                rescanRequested = true;
+                continue;
+            }
+            if (directory == null) {
+                continue;
+            }
+
+            Path path = directory.resolve((Path) event.context());
+            if (Files.isDirectory(path, LinkOption.NOFOLLOW_LINKS)) {
+                if (event.kind() == ENTRY_CREATE) {
+                    // Register the new subtree and pick up files moved in with it
+                    registerTree(path, true);
+                }
+            } else if (FileScanner.isSupportedFile(path.getFileName().toString())) {
+                trackFile(path);
+            }
+        }
+
+        if (!key.reset()) {
+            watchedDirectories.remove(key);
+        }
+    }
+
+    private void registerTree(Path start, boolean trackExistingFiles) {
+        try {
+            Files.walkFileTree(start, new SimpleFileVisitor<>() {
+                @Override
+                public FileVisitResult preVisitDirectory(Path dir, BasicFileAttributes attrs) throws IOException {
+                    watchedDirectories.put(dir.register(watchService, ENTRY_CREATE, ENTRY_MODIFY), dir);
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFile(Path file, BasicFileAttributes attrs) {
+                    if (trackExistingFiles && attrs.isRegularFile()
+                            && FileScanner.isSupportedFile(file.getFileName().toString())) {
+                        trackFile(file);
+                    }
+                    return FileVisitResult.CONTINUE;
+                }
+
+                @Override
+                public FileVisitResult visitFileFailed(Path file, IOException e) {
+                    System.err.println("Failed to watch " + file + ": " + e.getMessage());
+                    return FileVisitResult.CONTINUE;
+                }
+            });
+        } catch (IOException e) {
+            System.err.println("Failed to watch " + start + ": " + e.getMessage());
+        }
+    }
+
+    private void trackFile(Path path) {
+        PendingFile pending = pendingFiles.computeIfAbsent(path, p -> new PendingFile());
+        pending.lastEventMillis = System.currentTimeMillis();
+    }
+
+    /**
+     * Hands files that have been quiet for the debounce period to the ingest thread.
+     * A file only counts as complete once its size and modification time are
+     * unchanged between two checks and it can be opened for reading.
+     */
+    private void submitReadyFiles() {
+        long now = System.currentTimeMillis();
+        List<File> ready = new ArrayList<>();
+
+        Iterator<Map.Entry<Path, PendingFile>> iterator = pendingFiles.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<Path, PendingFile> entry = iterator.next();
+            PendingFile pending = entry.getValue();
+            if (now - pending.lastEventMillis < debounceMillis) {
+                continue;
+            }
+
+            Path path = entry.getKey();
+            try {
+                BasicFileAttributes attrs = Files.readAttributes(path, BasicFileAttributes.class);
+                long modified = attrs.lastModifiedTime().toMillis();
+                if (attrs.size() != pending.size || modified != pending.modified) {
+                    // Still being written; check again after another quiet period
+                    pending.size = attrs.size();
+                    pending.modified = modified;
+                    pending.lastEventMillis = now;
+                    continue;
+                }
+                if (!isReadable(path)) {
+                    pending.lastEventMillis = now;
+                    continue;
+                }
+                ready.add(path.toFile());
+            } catch (NoSuchFileException e) {
+                // Deleted or renamed before it settled
+            } catch (IOException e) {
+                System.err.println("Failed to check " + path + ": " + e.getMessage());
+            }
+            iterator.remove();
+        }
+
+        boolean rescan = rescanRequested;
+        rescanRequested = false;
+        if (!ready.isEmpty() || rescan) {
+            ingestExecutor.execute(() -> ingest(ready, rescan));
+        }
+    }
+
+    private void ingest(List<File> files, boolean rescan) {
+        try {
+            int processedCount = 0;
+            if (!files.isEmpty()) {
+                processedCount += processor.processFiles(files);
+            }
+            if (rescan) {
+                processedCount += processor.processChangedReceipts(root.toFile());
+            }
+            if (processedCount > 0) {
+                onProcessed.accept(processedCount);
+            }
+        } catch (Exception e) {
+            System.err.println("Watch folder ingest failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Checks that the file can be opened, which also fails while a writer holds
+     * it locked on Windows; {@link Files#isReadable} only checks permissions.
+     */
+    @SuppressWarnings("try")
+    private static boolean isReadable(Path path) {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private static class PendingFile {
+        long lastEventMillis;
+        long size = -1;
+        long modified = -1;
+    }
+}
@@ -0,0 +1,478 @@
+package com.receiptprocessor.cli;
+
+import com.receiptprocessor.IngestStats;
+import com.receiptprocessor.ProcessingConfig;
+import com.receiptprocessor.ReceiptProcessor;
+import com.receiptprocessor.VersioningMode;
+import com.receiptprocessor.WatchFolderService;
+import com.receiptprocessor.db.DatabaseManager;
+import com.receiptprocessor.db.JournalEntry;
+import com.receiptprocessor.export.ReceiptExportReader;
+import com.receiptprocessor.export.ReceiptExportWriter;
+import com.receiptprocessor.loadgen.CorpusGenerator;
+import com.receiptprocessor.loadgen.HeapSampler;
+import com.receiptprocessor.loadgen.SyntheticReceiptExtractor;
+import com.receiptprocessor.metrics.Metrics;
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+
+/**
+ * Headless command-line mode. Never touches AWT/Swing, so it runs on servers
+ * without a display and starts faster than the GUI.
+ * Results are printed to stdout as single-line JSON.
+ */
+public class CommandLine {
+
+    private static final String USAGE = """
+        Usage:
+          process <dir> [--workers N] [--virtual-threads] [--incremental] [--batch-size N] [--no-cache]
+                  [--versioning database|export]
+                  [--extract-batch N] [--in-flight N] [--timeout-ms N] [--max-attempts N] [--retry-delay-ms N]
+          watch <dir> [--workers N] [--debounce-ms N] [--no-cache] [--versioning database|export]
+          resume [--workers N] [--no-cache]
+          failures [--requeue]
+          export [--output FILE]
+          rebuild [--from DIR] [--db FILE]
+          stats
+          generate <dir> [--files N] [--size-bytes N] [--depth N] [--fan-out N]
+                   [--duplicates RATIO] [--renamed RATIO] [--seed N]
+          loadtest <dir> [--workers N] [--latency-ms N] [--jitter-ms N] [--failure-rate RATIO]
+                   [--db FILE] [--seed N] [--batch-size N] [--extract-batch N] [--in-flight N]
+                   [--max-attempts N] [--retry-delay-ms N]
+        """;
+
+    private static final int REBUILD_BATCH_SIZE = 1000;
+
+    private final Gson gson = new GsonBuilder().serializeSpecialFloatingPointValues().create();
+    private final PrintStream out;
+
+    private CommandLine(PrintStream out) {
+        this.out = out;
+    }
+
+    /**
+     * Runs a command.
+     *
+     * @param args The command and its arguments
+     * @return Process exit code
+     */
+    public static int run(String[] args) {
+        // Keep AWT from initializing even if a dependency touches it
+        System.setProperty("java.awt.headless", "true");
+
+        // Results go to stdout; progress logging is moved to stderr so stdout stays machine-readable
+        PrintStream stdout = System.out;
+        System.setOut(System.err);
+
+        try {
+            return new CommandLine(stdout).execute(args);
+        } catch (IllegalArgumentException e) {
+            System.err.println(e.getMessage());
+            System.err.print(USAGE);
+            return 2;
+        } catch (Exception e) {
+            System.err.println("Error: " + e.getMessage());
+            return 1;
+        }
+    }
+
+    private int execute(String[] args) throws Exception {
+        Options options = Options.parse(args);
+
+        return switch (options.command) {
+            case "process" -> process(options);
+            case "watch" -> watch(options);
+            case "resume" -> resume(options);
+            case "failures" -> failures(options);
+            case "export" -> export(options);
+            case "rebuild" -> rebuild(options);
+            case "stats" -> stats();
+            case "generate" -> generate(options);
+            case "loadtest" -> loadTest(options);
+            case "help" -> {
+                out.print(USAGE);
+                yield 0;
+            }
+            default -> throw new IllegalArgumentException("Unknown command: " + options.command);
+        };
+    }
+
+    private int process(Options options) throws Exception {
+        File directory = options.requireDirectory();
+
+        try (ReceiptProcessor processor = new ReceiptProcessor(options.toConfig())) {
+            processor.processReceipts(directory);
+            IngestStats stats = processor.getLastRunStats();
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "process");
+            summary.put("directory", directory.getAbsolutePath());
+            summary.putAll(stats.toMap());
+            Map<String, Object> cacheStats = processor.getExtractionCacheStats();
+            if (cacheStats != null) {
+                summary.put("extraction_cache", cacheStats);
+            }
+            summary.put("metrics", Metrics.toMap());
+            out.println(gson.toJson(summary));
+            return stats.getFailed() > 0 ? 3 : 0;
+        }
+    }
+
+    /**
+     * Watches a folder until the JVM is stopped, printing a summary after each ingest.
+     */
+    private int watch(Options options) throws Exception {
+        File directory = options.requireDirectory();
+        ReceiptProcessor processor = new ReceiptProcessor(options.toConfig());
+        WatchFolderService service = new WatchFolderService(processor, directory, options.debounceMillis);
+        service.setOnProcessed(count -> {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "watch");
+            summary.put("directory", directory.getAbsolutePath());
+            summary.putAll(processor.getLastRunStats().toMap());
+            // Process-wide since the watch started, unlike the per-ingest figures above
+            summary.put("metrics", Metrics.toMap());
+            out.println(gson.toJson(summary));
+        });
+
+        CountDownLatch stopped = new CountDownLatch(1);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            service.close();
+            processor.close();
+            stopped.countDown();
+        }, "watch-folder-shutdown"));
+
+        service.start();
+        stopped.await();
+        return 0;
+    }
+
+    /**
+     * Finishes what an interrupted run left in the ingestion journal, plus re-queued failures.
+     */
+    private int resume(Options options) throws Exception {
+        try (ReceiptProcessor processor = new ReceiptProcessor(options.toConfig())) {
+            int pending = processor.countInterrupted();
+            processor.resumeInterrupted();
+            IngestStats stats = processor.getLastRunStats();
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "resume");
+            summary.put("pending", pending);
+            if (pending > 0) {
+                summary.putAll(stats.toMap());
+            }
+            summary.put("journal", processor.getJournalCounts());
+            out.println(gson.toJson(summary));
+            return pending > 0 && stats.getFailed() > 0 ? 3 : 0;
+        }
+    }
+
+    /**
+     * Lists the files that failed to ingest, optionally putting them back in line for {@code resume}.
+     */
+    private int failures(Options options) throws Exception {
+        try (ReceiptProcessor processor = new ReceiptProcessor(options.toConfig())) {
+            List<Map<String, Object>> files = new ArrayList<>();
+            for (JournalEntry entry : processor.getFailedFiles()) {
+                Map<String, Object> file = new LinkedHashMap<>();
+                file.put("path", entry.path());
+                file.put("attempts", entry.attempts());
+                file.put("error", entry.lastError());
+                file.put("failed_at", Instant.ofEpochMilli(entry.updatedAt()).toString());
+                files.add(file);
+            }
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "failures");
+            summary.put("failures", files);
+            if (options.requeue) {
+                summary.put("requeued", processor.requeueFailed(null));
+            }
+            out.println(gson.toJson(summary));
+            return 0;
+        }
+    }
+
+    /**
+     * Writes every receipt as one JSON object per line (NDJSON).
+     * The stored data is already compact JSON, so it is copied through without being parsed.
+     */
+    private int export(Options options) throws Exception {
+        OutputStream target = options.output != null ? new FileOutputStream(options.output) : out;
+        int[] count = {0};
+
+        try (DatabaseManager dbManager = new DatabaseManager();
+             Writer writer = new BufferedWriter(new OutputStreamWriter(target, StandardCharsets.UTF_8))) {
+            dbManager.initialize();
+            dbManager.forEachReceipt(receipt -> {
+                ReceiptExportWriter.writeLine(writer, receipt);
+                count[0]++;
+            });
+            writer.flush();
+        }
+
+        if (options.output != null) {
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "export");
+            summary.put("output", new File(options.output).getAbsolutePath());
+            summary.put("receipts", count[0]);
+            out.println(gson.toJson(summary));
+        }
+        return 0;
+    }
+
+    /**
+     * Rebuilds a database from the sharded NDJSON export in one streaming pass.
+     * Refuses to overwrite an existing database.
+     */
+    private int rebuild(Options options) throws Exception {
+        File export = new File(options.exportDirectory != null ? options.exportDirectory : "receipts-export");
+        File database = new File(options.database != null ? options.database : "receipts.db");
+        if (!export.isDirectory()) {
+            throw new IllegalArgumentException("Not a directory: " + export);
+        }
+        if (database.exists()) {
+            throw new IOException("Database already exists, move it away first: " + database);
+        }
+
+        long start = System.nanoTime();
+        int restored;
+        try (DatabaseManager dbManager = new DatabaseManager(database.getPath())) {
+            dbManager.initialize();
+            restored = ReceiptExportReader.restore(export.toPath(), dbManager, REBUILD_BATCH_SIZE);
+        }
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("command", "rebuild");
+        summary.put("export", export.getAbsolutePath());
+        summary.put("database", database.getAbsolutePath());
+        summary.put("receipts", restored);
+        summary.put("elapsed_seconds", Math.round((System.nanoTime() - start) / 1e6) / 1000.0);
+        out.println(gson.toJson(summary));
+        return 0;
+    }
+
+    private int stats() throws Exception {
+        try (DatabaseManager dbManager = new DatabaseManager()) {
+            dbManager.initialize();
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "stats");
+            summary.put("receipts", dbManager.countReceipts());
+            summary.put("journal", dbManager.countJournalEntries());
+            summary.put("database_bytes", new File("receipts.db").length());
+            out.println(gson.toJson(summary));
+        }
+        return 0;
+    }
+
+    /**
+     * Fabricates a synthetic receipt corpus for load tests.
+     */
+    private int generate(Options options) throws Exception {
+        if (options.directory == null) {
+            throw new IllegalArgumentException("Missing directory for generate");
+        }
+        CorpusGenerator generator = new CorpusGenerator();
+        generator.setFileCount(options.files);
+        generator.setMeanSizeBytes(options.sizeBytes);
+        generator.setDepth(options.depth);
+        generator.setFanOut(options.fanOut);
+        // Cleared first so the two ratios are checked against each other, not against the defaults
+        generator.setRenamedRatio(0);
+        generator.setDuplicateRatio(options.duplicateRatio);
+        generator.setRenamedRatio(options.renamedRatio);
+        generator.setSeed(options.seed);
+
+        File directory = new File(options.directory);
+        Files.createDirectories(directory.toPath());
+        CorpusGenerator.Result result = generator.generate(directory.toPath());
+
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("command", "generate");
+        summary.put("directory", directory.getAbsolutePath());
+        summary.putAll(result.toMap());
+        out.println(gson.toJson(summary));
+        return 0;
+    }
+
+    /**
+     * Ingests a folder with the synthetic extractor into a separate database, reporting
+     * throughput, stage latencies and heap usage. Git and the extraction cache are off;
+     * an existing database is added to, so delete it first for a cold run.
+     */
+    private int loadTest(Options options) throws Exception {
+        File directory = options.requireDirectory();
+        ProcessingConfig config = options.toConfig();
+        String database = options.database != null ? options.database : "loadtest.db";
+        config.setDatabasePath(database);
+        config.setScanManifestPath(database + ".manifest.tsv");
+        config.setGitAutoCommit(false);
+        config.setExtractionCacheEnabled(false);
+        SyntheticReceiptExtractor extractor = new SyntheticReceiptExtractor(options.latencyMillis,
+            options.jitterMillis, options.failureRate, options.seed);
+
+        try (HeapSampler heap = new HeapSampler();
+             ReceiptProcessor processor = new ReceiptProcessor(config, extractor)) {
+            processor.processReceipts(directory);
+            heap.stop();
+            IngestStats stats = processor.getLastRunStats();
+
+            Map<String, Object> summary = new LinkedHashMap<>();
+            summary.put("command", "loadtest");
+            summary.put("directory", directory.getAbsolutePath());
+            summary.put("database", new File(database).getAbsolutePath());
+            summary.putAll(stats.toMap());
+            summary.put("receipts_in_database", processor.countReceipts());
+            summary.put("database_bytes", new File(database).length());
+            summary.put("heap", heap.toMap());
+            summary.put("metrics", Metrics.toMap());
+            out.println(gson.toJson(summary));
+            return 0;
+        }
+    }
+
+    /**
+     * Parsed command-line arguments.
+     */
+    private static class Options {
+        String command;
+        String directory;
+        String output;
+        int workers = 1;
+        boolean virtualThreads;
+        boolean incremental;
+        boolean noCache;
+        boolean requeue;
+        int batchSize = -1;
+        int extractBatch = 1;
+        int inFlight = 0;
+        long timeoutMillis = -1;
+        int maxAttempts = -1;
+        long retryDelayMillis = -1;
+        long debounceMillis = 1000;
+        int files = 1000;
+        int sizeBytes = 16 * 1024;
+        int depth = 2;
+        int fanOut = 12;
+        double duplicateRatio = 0.05;
+        double renamedRatio = 0.05;
+        long seed = 42;
+        long latencyMillis = 0;
+        long jitterMillis = 0;
+        double failureRate = 0;
+        String database;
+        String exportDirectory;
+        VersioningMode versioning;
+
+        static Options parse(String[] args) {
+            if (args.length == 0) {
+                throw new IllegalArgumentException("Missing command");
+            }
+
+            Options options = new Options();
+            options.command = args[0];
+            for (int i = 1; i < args.length; i++) {
+                String arg = args[i];
+                switch (arg) {
+                    case "--workers" -> options.workers = Integer.parseInt(value(args, ++i, arg));
+                    case "--virtual-threads" -> options.virtualThreads = true;
+                    case "--incremental" -> options.incremental = true;
+                    case "--no-cache" -> options.noCache = true;
+                    case "--requeue" -> options.requeue = true;
+                    case "--extract-batch" -> options.extractBatch = Integer.parseInt(value(args, ++i, arg));
+                    case "--in-flight" -> options.inFlight = Integer.parseInt(value(args, ++i, arg));
+                    case "--timeout-ms" -> options.timeoutMillis = Long.parseLong(value(args, ++i, arg));
+                    case "--max-attempts" -> options.maxAttempts = Integer.parseInt(value(args, ++i, arg));
+                    case "--retry-delay-ms" -> options.retryDelayMillis = Long.parseLong(value(args, ++i, arg));
+                    case "--batch-size" -> options.batchSize = Integer.parseInt(value(args, ++i, arg));
+                    case "--debounce-ms" -> options.debounceMillis = Long.parseLong(value(args, ++i, arg));
+                    case "--output" -> options.output = value(args, ++i, arg);
+                    case "--files" -> options.files = Integer.parseInt(value(args, ++i, arg));
+                    case "--size-bytes" -> options.sizeBytes = Integer.parseInt(value(args, ++i, arg));
+                    case "--depth" -> options.depth = Integer.parseInt(value(args, ++i, arg));
+                    case "--fan-out" -> options.fanOut = Integer.parseInt(value(args, ++i, arg));
+                    case "--duplicates" -> options.duplicateRatio = Double.parseDouble(value(args, ++i, arg));
+                    case "--renamed" -> options.renamedRatio = Double.parseDouble(value(args, ++i, arg));
+                    case "--seed" -> options.seed = Long.parseLong(value(args, ++i, arg));
+                    case "--latency-ms" -> options.latencyMillis = Long.parseLong(value(args, ++i, arg));
+                    case "--jitter-ms" -> options.jitterMillis = Long.parseLong(value(args, ++i, arg));
+                    case "--failure-rate" -> options.failureRate = Double.parseDouble(value(args, ++i, arg));
+                    case "--db" -> options.database = value(args, ++i, arg);
+                    case "--from" -> options.exportDirectory = value(args, ++i, arg);
+                    case "--versioning" -> options.versioning = versioningMode(value(args, ++i, arg));
+                    default -> {
+                        if (arg.startsWith("--") || options.directory != null) {
+                            throw new IllegalArgumentException("Unexpected argument: " + arg);
+                        }
+                        options.directory = arg;
+                    }
+                }
+            }
+            return options;
+        }
+
+        private static VersioningMode versioningMode(String value) {
+            try {
+                return VersioningMode.valueOf(value.toUpperCase());
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unknown versioning mode: " + value);
+            }
+        }
+
+        private static String value(String[] args, int index, String option) {
+            if (index >= args.length) {
+                throw new IllegalArgumentException("Missing value for " + option);
+            }
+            return args[index];
+        }
+
+        File requireDirectory() {
+            if (directory == null) {
+                throw new IllegalArgumentException("Missing directory for " + command);
+            }
+            File dir = new File(directory);
+            if (!dir.isDirectory()) {
+                throw new IllegalArgumentException("Not a directory: " + directory);
+            }
+            return dir;
+        }
+
+        ProcessingConfig toConfig() {
+            ProcessingConfig config = new ProcessingConfig();
+            config.setWorkerThreads(workers);
+            config.setUseVirtualThreads(virtualThreads);
+            config.setIncrementalScan(incremental);
+            config.setExtractionCacheEnabled(!noCache);
+            config.setExtractionBatchSize(extractBatch);
+            config.setMaxInFlightExtractions(inFlight);
+            if (timeoutMillis >= 0) {
+                config.setExtractionTimeoutMillis(timeoutMillis);
+            }
+            if (maxAttempts > 0) {
+                config.setMaxExtractionAttempts(maxAttempts);
+            }
+            if (retryDelayMillis >= 0) {
+                config.setRetryBaseDelayMillis(retryDelayMillis);
+            }
+            if (batchSize > 0) {
+                config.setDbBatchSize(batchSize);
+            }
+            if (versioning != null) {
+                config.setVersioningMode(versioning);
+            }
+            return config;
+        }
+    }
+}
@@ -1,28 +1,111 @@
 package com.receiptprocessor.db;
 
+import com.receiptprocessor.metrics.Metrics;
 import com.receiptprocessor.model.Item;
 import com.receiptprocessor.model.Receipt;
-import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
+import com.receiptprocessor.model.ReceiptSummary;
 
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.StringJoiner;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * SQLite access for receipts.
+ * Owns one long-lived writer connection and a small pool of reader connections.
+ * The database runs in WAL mode so readers (e.g. the UI) never block on ingestion writes.
+ */
+public class DatabaseManager implements AutoCloseable {
+
+    private static final String DEFAULT_DB_PATH = "receipts.db";
+    private static final int READER_CONNECTIONS = 2;
+    // How often a read waiting for a free reader checks whether the database was closed
+    private static final long READER_WAIT_MILLIS = 100;
+    private static final int MIGRATION_BATCH_SIZE = 500;
+
+    // Bumped whenever an upgrade needs to rewrite existing rows; stored in PRAGMA user_version
+    private static final int SCHEMA_VERSION = 6;
+
+    private static final String INSERT_RECEIPT = """
+        INSERT INTO receipts (filename, processed_date, raw_data, content_hash,
+                              total_price, store_name, receipt_date, item_count, preview)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String RESTORE_RECEIPT = """
+        INSERT INTO receipts (id, filename, processed_date, raw_data, content_hash,
+                              total_price, store_name, receipt_date, item_count, preview)
+        VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_ITEM = """
+        INSERT INTO items (receipt_id, name, price, protein, calories, receipt_date)
+        VALUES (?, ?, ?, ?, ?, ?)""";
+    private static final String INSERT_SEARCH_ENTRY =
+        "INSERT INTO receipts_fts (rowid, filename, store_name, item_names) VALUES (?, ?, ?, ?)";
+    private static final String UPSERT_JOURNAL_ENTRY = """
+        INSERT INTO ingest_journal (path, content_hash, state, attempts, last_error, updated_at)
+        VALUES (?, ?, ?, ?, ?, ?)
+        ON CONFLICT(path) DO UPDATE SET
+            content_hash = excluded.content_hash,
+            state = excluded.state,
+            attempts = ingest_journal.attempts + excluded.attempts,
+            last_error = COALESCE(excluded.last_error, ingest_journal.last_error),
+            updated_at = excluded.updated_at
+        """;
+    private static final String JOURNAL_COLUMNS = "path, content_hash, state, attempts, last_error, updated_at";
+    private static final String ROLLUP_COLUMNS =
+        "period, bucket, receipt_count, item_count, total_price, total_protein, total_calories";
+    private static final String ITEM_COLUMNS = "id, receipt_id, name, price, protein, calories";
+    private static final String SUMMARY_COLUMNS = "id, filename, processed_date, store_name, receipt_date, total_price, item_count, preview";
+
+    private final String dbUrl;
+
+    private final Object writeLock = new Object();
+    private PooledConnection writer;
+    private BlockingQueue<PooledConnection> readers;
+    // Set by close(); reads fail from then on, and readers still in use are closed when returned
+    private volatile boolean closed;
+
+    // Identities already stored; loaded once so duplicate checks need no SQL
+    private final Set<String> knownFilenames = ConcurrentHashMap.newKeySet();
+    private final Set<String> knownContentHashes = ConcurrentHashMap.newKeySet();
+
+    // Filenames of rows stored before content hashing, waiting to be claimed by their file
+    private final Set<String> unhashedFilenames = ConcurrentHashMap.newKeySet();
+
+    public DatabaseManager() {
+        this(DEFAULT_DB_PATH);
+    }
+
+    /**
+     * @param dbPath Path of the SQLite database file
+     */
+    public DatabaseManager(String dbPath) {
+        this.dbUrl = "jdbc:sqlite:" + dbPath;
+    }
 
-public class DatabaseManager {
-    
-    private static final String DB_URL = "jdbc:sqlite:receipts.db";
-    private final Gson gson = new GsonBuilder().setPrettyPrinting().create();
-    
     /**
-     * Initializes the database and creates tables if they don't exist.
+     * Opens the connections and creates tables if they don't exist.
      */
-    public void initialize() throws SQLException {
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement()) {
-            
+    public synchronized void initialize() throws SQLException {
+        if (writer != null) {
+            return;
+        }
+
+        writer = openConnection();
+        try (Statement stmt = writer.getConnection().createStatement()) {
+            // WAL lets readers run concurrently with the single writer
+            stmt.execute("PRAGMA journal_mode = WAL");
+
             // Create receipts table with flexible JSON storage
             String createReceiptsTable = """
                 CREATE TABLE IF NOT EXISTS receipts (
@@ -33,103 +116,1435 @@ public class DatabaseManager {
                 )
                 """;
             stmt.execute(createReceiptsTable);
+            addColumnIfMissing(stmt, "receipts", "content_hash", "TEXT");
+
+            // Summary columns for the list view, materialized at insert time
+            addColumnIfMissing(stmt, "receipts", "total_price", "REAL NOT NULL DEFAULT 0");
+            addColumnIfMissing(stmt, "receipts", "store_name", "TEXT NOT NULL DEFAULT ''");
+            addColumnIfMissing(stmt, "receipts", "receipt_date", "TEXT NOT NULL DEFAULT ''");
+            addColumnIfMissing(stmt, "receipts", "item_count", "INTEGER NOT NULL DEFAULT 0");
+            addColumnIfMissing(stmt, "receipts", "preview", "TEXT NOT NULL DEFAULT ''");
+
+            createFilenameIndex(stmt);
+            stmt.execute("CREATE UNIQUE INDEX IF NOT EXISTS idx_receipts_content_hash ON receipts(content_hash)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_receipts_store_name ON receipts(store_name)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_receipts_receipt_date ON receipts(receipt_date)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_receipts_total_price ON receipts(total_price)");
+
+            // Line items, one row per entry of the extraction's "items" list.
+            // receipt_date is copied from the receipt so date-range queries stay on one index.
+            String createItemsTable = """
+                CREATE TABLE IF NOT EXISTS items (
+                    id INTEGER PRIMARY KEY AUTOINCREMENT,
+                    receipt_id INTEGER NOT NULL REFERENCES receipts(id) ON DELETE CASCADE,
+                    name TEXT NOT NULL DEFAULT '',
+                    price REAL NOT NULL DEFAULT 0,
+                    protein REAL NOT NULL DEFAULT 0,
+                    calories REAL NOT NULL DEFAULT 0,
+                    receipt_date TEXT NOT NULL DEFAULT ''
+                )
+                """;
+            stmt.execute(createItemsTable);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_items_receipt_id ON items(receipt_id)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_items_name ON items(name)");
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_items_receipt_date ON items(receipt_date)");
+
+            // Running totals per day, week, month and store, kept up to date on every insert
+            String createRollupsTable = """
+                CREATE TABLE IF NOT EXISTS rollups (
+                    period TEXT NOT NULL,
+                    bucket TEXT NOT NULL,
+                    receipt_count INTEGER NOT NULL DEFAULT 0,
+                    item_count INTEGER NOT NULL DEFAULT 0,
+                    total_price REAL NOT NULL DEFAULT 0,
+                    total_protein REAL NOT NULL DEFAULT 0,
+                    total_calories REAL NOT NULL DEFAULT 0,
+                    PRIMARY KEY (period, bucket)
+                ) WITHOUT ROWID
+                """;
+            stmt.execute(createRollupsTable);
+
+            // Full-text index over filename, store and item names; rowid is the receipt ID.
+            // The prefix indexes answer as-you-type queries without scanning the term list.
+            String createSearchTable = """
+                CREATE VIRTUAL TABLE IF NOT EXISTS receipts_fts USING fts5(
+                    filename, store_name, item_names,
+                    tokenize = 'unicode61 remove_diacritics 2',
+                    prefix = '1 2 3'
+                )
+                """;
+            stmt.execute(createSearchTable);
+
+            // Per-file ingestion progress, so an interrupted run can resume without a rescan
+            String createJournalTable = """
+                CREATE TABLE IF NOT EXISTS ingest_journal (
+                    path TEXT PRIMARY KEY,
+                    content_hash TEXT,
+                    state TEXT NOT NULL,
+                    attempts INTEGER NOT NULL DEFAULT 0,
+                    last_error TEXT,
+                    updated_at INTEGER NOT NULL
+                )
+                """;
+            stmt.execute(createJournalTable);
+            stmt.execute("CREATE INDEX IF NOT EXISTS idx_ingest_journal_state ON ingest_journal(state)");
+
+            migrate(stmt);
+
+            try (ResultSet rs = stmt.executeQuery("SELECT filename, content_hash FROM receipts")) {
+                while (rs.next()) {
+                    String filename = rs.getString(1);
+                    String contentHash = rs.getString(2);
+                    knownFilenames.add(filename);
+                    if (contentHash != null) {
+                        knownContentHashes.add(contentHash);
+                    } else {
+                        unhashedFilenames.add(filename);
+                    }
+                }
+            }
+        }
+
+        readers = new ArrayBlockingQueue<>(READER_CONNECTIONS);
+        for (int i = 0; i < READER_CONNECTIONS; i++) {
+            readers.add(openConnection());
+        }
+    }
+
+    /**
+     * Indexes filenames for lookups. Receipts are identified by content hash,
+     * so different files may share a name and the index is not unique.
+     */
+    private void createFilenameIndex(Statement stmt) throws SQLException {
+        boolean unique = false;
+        try (ResultSet rs = stmt.executeQuery("PRAGMA index_list(receipts)")) {
+            while (rs.next()) {
+                if ("idx_receipts_filename".equals(rs.getString("name"))) {
+                    unique = rs.getInt("unique") == 1;
+                }
+            }
+        }
+        if (unique) {
+            stmt.execute("DROP INDEX idx_receipts_filename");
+        }
+        stmt.execute("CREATE INDEX IF NOT EXISTS idx_receipts_filename ON receipts(filename)");
+    }
+
+    private void addColumnIfMissing(Statement stmt, String table, String column, String definition) throws SQLException {
+        try (ResultSet rs = stmt.executeQuery("PRAGMA table_info(" + table + ")")) {
+            while (rs.next()) {
+                if (column.equals(rs.getString("name"))) {
+                    return;
+                }
+            }
+        }
+        stmt.execute("ALTER TABLE " + table + " ADD COLUMN " + column + " " + definition);
+    }
+
+    /**
+     * Upgrades rows written by older versions. Each step runs once per database.
+     */
+    private void migrate(Statement stmt) throws SQLException {
+        int version;
+        try (ResultSet rs = stmt.executeQuery("PRAGMA user_version")) {
+            version = rs.next() ? rs.getInt(1) : 0;
+        }
+        if (version >= SCHEMA_VERSION) {
+            return;
+        }
+
+        if (version < 6) {
+            // Before version 6, totals given as numeric strings were stored as 0
+            backfillSummaryColumns();
+        }
+        if (version < 2) {
+            // Older versions pretty-printed raw_data; SQLite's json() re-emits it minified
+            stmt.execute("UPDATE receipts SET raw_data = json(raw_data) WHERE json_valid(raw_data)");
+        }
+        if (version < 3) {
+            backfillItems();
+        }
+        if (version < 6) {
+            // Also picks up the corrected totals
+            rebuildRollups(writer);
+        }
+        if (version < 5) {
+            backfillSearchIndex(stmt);
+        }
+        stmt.execute("PRAGMA user_version = " + SCHEMA_VERSION);
+    }
+
+    /**
+     * Fills the summary columns of rows stored before they existed.
+     * Rows are read and updated in chunks, one transaction per chunk.
+     * A row whose raw_data cannot be parsed is logged and keeps the column defaults.
+     */
+    private void backfillSummaryColumns() throws SQLException {
+        String select = "SELECT id, raw_data FROM receipts WHERE id > ? ORDER BY id LIMIT ?";
+        String update = """
+            UPDATE receipts SET total_price = ?, store_name = ?, receipt_date = ?, item_count = ?, preview = ?
+            WHERE id = ?""";
+
+        Connection conn = writer.getConnection();
+        int lastId = 0;
+        while (true) {
+            PreparedStatement query = writer.prepare(select);
+            query.setInt(1, lastId);
+            query.setInt(2, MIGRATION_BATCH_SIZE);
+
+            int chunkStart = lastId;
+            Map<Integer, SummaryFields> chunk = new LinkedHashMap<>();
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getInt(1);
+                    try {
+                        chunk.put(lastId, SummaryFields.from(ReceiptJsonCodec.toMap(rs.getString(2))));
+                    } catch (RuntimeException e) {
+                        System.err.println("Skipping summary of receipt " + lastId + ": " + e.getMessage());
+                    }
+                }
+            }
+            if (lastId == chunkStart) {
+                return;
+            }
+            if (chunk.isEmpty()) {
+                continue;
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = writer.prepare(update);
+                for (Map.Entry<Integer, SummaryFields> entry : chunk.entrySet()) {
+                    SummaryFields summary = entry.getValue();
+                    pstmt.setDouble(1, summary.totalPrice());
+                    pstmt.setString(2, summary.storeName());
+                    pstmt.setString(3, summary.receiptDate());
+                    pstmt.setInt(4, summary.itemCount());
+                    pstmt.setString(5, summary.preview());
+                    pstmt.setInt(6, entry.getKey());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Fills the items table from the stored extraction data, in chunks with one
+     * transaction per chunk. Items are read by {@link #itemsOf(Map)}, as for new
+     * receipts, so a receipt gets the same rows whenever it was stored.
+     * A row whose raw_data cannot be parsed is logged and gets no items.
+     */
+    private void backfillItems() throws SQLException {
+        String select = """
+            SELECT id, raw_data FROM receipts r
+            WHERE id > ? AND NOT EXISTS (SELECT 1 FROM items WHERE receipt_id = r.id)
+            ORDER BY id LIMIT ?""";
+
+        Connection conn = writer.getConnection();
+        int lastId = 0;
+        while (true) {
+            PreparedStatement query = writer.prepare(select);
+            query.setInt(1, lastId);
+            query.setInt(2, MIGRATION_BATCH_SIZE);
+
+            int chunkStart = lastId;
+            Map<Integer, Map<String, Object>> chunk = new LinkedHashMap<>();
+            try (ResultSet rs = query.executeQuery()) {
+                while (rs.next()) {
+                    lastId = rs.getInt(1);
+                    try {
+                        chunk.put(lastId, ReceiptJsonCodec.toMap(rs.getString(2)));
+                    } catch (RuntimeException e) {
+                        System.err.println("Skipping items of receipt " + lastId + ": " + e.getMessage());
+                    }
+                }
+            }
+            if (lastId == chunkStart) {
+                return;
+            }
+
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = writer.prepare(INSERT_ITEM);
+                boolean any = false;
+                for (Map.Entry<Integer, Map<String, Object>> entry : chunk.entrySet()) {
+                    any |= addItems(pstmt, entry.getKey(), entry.getValue());
+                }
+                if (any) {
+                    pstmt.executeBatch();
+                }
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
         }
     }
-    
+
+    /**
+     * Indexes every stored receipt for full-text search in one set-based pass.
+     */
+    private void backfillSearchIndex(Statement stmt) throws SQLException {
+        String backfill = """
+            INSERT INTO receipts_fts (rowid, filename, store_name, item_names)
+            SELECT r.id, r.filename, r.store_name,
+                   coalesce((SELECT group_concat(name, ' ') FROM items WHERE receipt_id = r.id), '')
+            FROM receipts r
+            WHERE r.id NOT IN (SELECT rowid FROM receipts_fts)
+            """;
+        stmt.execute(backfill);
+    }
+
+    /**
+     * Binds the insert parameters of {@link #INSERT_RECEIPT}.
+     */
+    private void bindReceipt(PreparedStatement pstmt, String filename, String processedDate,
+                             String contentHash, Map<String, Object> data) throws SQLException {
+        SummaryFields summary = SummaryFields.from(data);
+        pstmt.setString(1, filename);
+        pstmt.setString(2, processedDate);
+        pstmt.setString(3, ReceiptJsonCodec.toJson(data));
+        pstmt.setString(4, contentHash);
+        pstmt.setDouble(5, summary.totalPrice());
+        pstmt.setString(6, summary.storeName());
+        pstmt.setString(7, summary.receiptDate());
+        pstmt.setInt(8, summary.itemCount());
+        pstmt.setString(9, summary.preview());
+    }
+
+    private PooledConnection openConnection() throws SQLException {
+        Connection conn = DriverManager.getConnection(dbUrl);
+        try (Statement stmt = conn.createStatement()) {
+            // NORMAL is durable in WAL mode except for the last transactions on power loss
+            stmt.execute("PRAGMA synchronous = NORMAL");
+            stmt.execute("PRAGMA cache_size = -16000");
+            stmt.execute("PRAGMA mmap_size = 268435456");
+            stmt.execute("PRAGMA temp_store = MEMORY");
+            stmt.execute("PRAGMA busy_timeout = 5000");
+            stmt.execute("PRAGMA foreign_keys = ON");
+        }
+        return new PooledConnection(conn);
+    }
+
     /**
      * Saves raw dictionary data from the extraction function.
-     * 
+     *
      * @param filename The filename of the receipt
      * @param data The dictionary data from the extraction function
      * @return The ID of the saved receipt
      */
     public int saveReceiptData(String filename, Map<String, Object> data) throws SQLException {
-        String insertReceipt = "INSERT INTO receipts (filename, processed_date, raw_data) VALUES (?, ?, ?)";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(insertReceipt, Statement.RETURN_GENERATED_KEYS)) {
-            
-            pstmt.setString(1, filename);
-            pstmt.setString(2, LocalDateTime.now().toString());
-            pstmt.setString(3, gson.toJson(data));
-            pstmt.executeUpdate();
-            
-            try (ResultSet rs = pstmt.getGeneratedKeys()) {
-                if (rs.next()) {
-                    return rs.getInt(1);
-                } else {
-                    throw new SQLException("Failed to get receipt ID");
+        return saveReceiptData(filename, null, data);
+    }
+
+    /**
+     * Saves raw dictionary data from the extraction function.
+     *
+     * @param filename The filename of the receipt
+     * @param contentHash SHA-256 fingerprint of the file contents, or null if unknown
+     * @param data The dictionary data from the extraction function
+     * @return The ID of the saved receipt
+     */
+    public int saveReceiptData(String filename, String contentHash, Map<String, Object> data) throws SQLException {
+        return saveReceiptsBatch(List.of(new PendingReceipt(filename, contentHash, data))).get(0);
+    }
+
+    /**
+     * Saves several receipts in a single transaction, so the whole batch costs one disk sync.
+     * Their line items, rollup totals and search entries are written in the same transaction.
+     *
+     * @param receipts The receipts to insert
+     * @return The IDs of the saved receipts, in the same order as the input
+     */
+    public List<Integer> saveReceiptsBatch(List<PendingReceipt> receipts) throws SQLException {
+        if (receipts.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        synchronized (writeLock) {
+            Connection conn = writer.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = writer.prepare(INSERT_RECEIPT);
+                String processedDate = LocalDateTime.now().toString();
+                for (PendingReceipt receipt : receipts) {
+                    bindReceipt(pstmt, receipt.filename(), processedDate, receipt.contentHash(), receipt.data());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+
+                // AUTOINCREMENT ids are consecutive inside one write transaction
+                int lastId;
+                try (ResultSet rs = writer.prepare("SELECT last_insert_rowid()").executeQuery()) {
+                    if (!rs.next()) {
+                        throw new SQLException("Failed to get receipt IDs");
+                    }
+                    lastId = rs.getInt(1);
+                }
+
+                List<Integer> ids = new ArrayList<>(receipts.size());
+                for (int id = lastId - receipts.size() + 1; id <= lastId; id++) {
+                    ids.add(id);
+                }
+                insertItems(ids, receipts);
+                updateRollups(receipts);
+                indexForSearch(ids, receipts);
+                conn.commit();
+
+                for (PendingReceipt receipt : receipts) {
+                    remember(receipt.filename(), receipt.contentHash());
+                }
+                return ids;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Inserts receipts read back from an export, keeping their IDs and processed dates,
+     * in one transaction together with their items, rollup totals and search entries.
+     * Used to rebuild the database; the IDs must not be taken yet.
+     *
+     * @param receipts The receipts to restore
+     */
+    public void restoreReceipts(List<ExportedReceipt> receipts) throws SQLException {
+        if (receipts.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            Connection conn = writer.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = writer.prepare(RESTORE_RECEIPT);
+                List<Integer> ids = new ArrayList<>(receipts.size());
+                List<PendingReceipt> pending = new ArrayList<>(receipts.size());
+                for (ExportedReceipt receipt : receipts) {
+                    SummaryFields summary = SummaryFields.from(receipt.data());
+                    pstmt.setInt(1, receipt.id());
+                    pstmt.setString(2, receipt.filename());
+                    pstmt.setString(3, receipt.processedDate());
+                    pstmt.setString(4, ReceiptJsonCodec.toJson(receipt.data()));
+                    pstmt.setString(5, receipt.contentHash());
+                    pstmt.setDouble(6, summary.totalPrice());
+                    pstmt.setString(7, summary.storeName());
+                    pstmt.setString(8, summary.receiptDate());
+                    pstmt.setInt(9, summary.itemCount());
+                    pstmt.setString(10, summary.preview());
+                    pstmt.addBatch();
+                    ids.add(receipt.id());
+                    pending.add(new PendingReceipt(receipt.filename(), receipt.contentHash(), receipt.data()));
+                }
+                pstmt.executeBatch();
+                insertItems(ids, pending);
+                updateRollups(pending);
+                indexForSearch(ids, pending);
+                conn.commit();
+
+                for (PendingReceipt receipt : pending) {
+                    remember(receipt.filename(), receipt.contentHash());
                 }
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
     }
-    
 
-    
+    /**
+     * Writes one items row per entry of each receipt's "items" list.
+     * Must run inside the caller's transaction.
+     */
+    private void insertItems(List<Integer> receiptIds, List<PendingReceipt> receipts) throws SQLException {
+        PreparedStatement pstmt = writer.prepare(INSERT_ITEM);
+        boolean any = false;
+        for (int i = 0; i < receipts.size(); i++) {
+            any |= addItems(pstmt, receiptIds.get(i), receipts.get(i).data());
+        }
+        if (any) {
+            pstmt.executeBatch();
+        }
+    }
+
+    /**
+     * Adds the items rows of one receipt to a batch of {@link #INSERT_ITEM}.
+     *
+     * @return Whether any rows were added
+     */
+    private static boolean addItems(PreparedStatement pstmt, int receiptId, Map<String, Object> data)
+            throws SQLException {
+        Object date = data.get("date");
+        boolean any = false;
+        for (Item item : itemsOf(data)) {
+            pstmt.setInt(1, receiptId);
+            pstmt.setString(2, item.getName());
+            pstmt.setDouble(3, item.getPrice());
+            pstmt.setDouble(4, item.getEstimatedProtein());
+            pstmt.setDouble(5, item.getEstimatedCalories());
+            pstmt.setString(6, date instanceof String ? (String) date : "");
+            pstmt.addBatch();
+            any = true;
+        }
+        return any;
+    }
+
+    /**
+     * Adds the receipts to the full-text index. Must run inside the caller's transaction.
+     */
+    private void indexForSearch(List<Integer> receiptIds, List<PendingReceipt> receipts) throws SQLException {
+        PreparedStatement pstmt = writer.prepare(INSERT_SEARCH_ENTRY);
+        for (int i = 0; i < receipts.size(); i++) {
+            PendingReceipt receipt = receipts.get(i);
+            StringJoiner itemNames = new StringJoiner(" ");
+            for (Item item : itemsOf(receipt.data())) {
+                itemNames.add(item.getName());
+            }
+            pstmt.setInt(1, receiptIds.get(i));
+            pstmt.setString(2, receipt.filename());
+            pstmt.setString(3, SummaryFields.from(receipt.data()).storeName());
+            pstmt.setString(4, itemNames.toString());
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+    }
+
+    /**
+     * Searches filenames, store names and item names, best matches first.
+     * Every word of the text must match the start of a word in one of those fields,
+     * so partially typed words find results.
+     *
+     * @param text The search text
+     * @param limit Maximum number of receipts to return
+     * @return Matching receipt summaries ranked by relevance; empty if the text has no words
+     */
+    public List<ReceiptSummary> searchReceipts(String text, int limit) throws SQLException {
+        return searchReceipts(text, limit, new QueryCancellation());
+    }
+
+    /**
+     * Searches like {@link #searchReceipts(String, int)}, stopping early if cancelled.
+     *
+     * @param text The search text
+     * @param limit Maximum number of receipts to return
+     * @param cancellation Cancels the search from another thread
+     * @return Matching receipt summaries ranked by relevance; empty if the text has no words
+     * @throws SQLException if the search fails or was cancelled
+     */
+    public List<ReceiptSummary> searchReceipts(String text, int limit, QueryCancellation cancellation)
+            throws SQLException {
+        String match = prefixQuery(text);
+        if (match.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        String query = """
+            SELECT r.id, r.filename, r.processed_date, r.store_name, r.receipt_date,
+                   r.total_price, r.item_count, r.preview
+            FROM receipts_fts f JOIN receipts r ON r.id = f.rowid
+            WHERE receipts_fts MATCH ?
+            ORDER BY f.rank
+            LIMIT ?""";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setString(1, match);
+            pstmt.setInt(2, limit);
+
+            List<ReceiptSummary> results = new ArrayList<>();
+            cancellation.started(pstmt);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    results.add(readSummary(rs));
+                }
+            } finally {
+                cancellation.finished();
+            }
+            return results;
+        });
+    }
+
+    /**
+     * Turns free text into an FTS5 query of quoted prefix terms, so user input
+     * is never parsed as FTS5 syntax.
+     */
+    private static String prefixQuery(String text) {
+        StringJoiner query = new StringJoiner(" ");
+        for (String word : text.trim().split("\\s+")) {
+            if (word.codePoints().anyMatch(Character::isLetterOrDigit)) {
+                query.add("\"" + word.replace("\"", "\"\"") + "\"*");
+            }
+        }
+        return query.toString();
+    }
+
+    /**
+     * Adds the receipts to their rollup buckets. Must run inside the caller's transaction.
+     */
+    private void updateRollups(List<PendingReceipt> receipts) throws SQLException {
+        RollupAccumulator rollups = new RollupAccumulator();
+        for (PendingReceipt receipt : receipts) {
+            double protein = 0;
+            double calories = 0;
+            for (Item item : itemsOf(receipt.data())) {
+                protein += item.getEstimatedProtein();
+                calories += item.getEstimatedCalories();
+            }
+            rollups.add(SummaryFields.from(receipt.data()), protein, calories);
+        }
+        rollups.writeTo(writer);
+    }
+
+    /**
+     * Recomputes the rollup tables from scratch in one pass over the receipts,
+     * replacing the stored totals in a single transaction.
+     */
+    public void rebuildRollups() throws SQLException {
+        synchronized (writeLock) {
+            rebuildRollups(writer);
+        }
+    }
+
+    private void rebuildRollups(PooledConnection conn) throws SQLException {
+        // Per-receipt item sums come from the items table, so raw_data is not parsed
+        String query = """
+            SELECT r.receipt_date, r.store_name, r.total_price, r.item_count,
+                   coalesce(i.protein, 0), coalesce(i.calories, 0)
+            FROM receipts r
+            LEFT JOIN (SELECT receipt_id, total(protein) AS protein, total(calories) AS calories
+                       FROM items GROUP BY receipt_id) i ON i.receipt_id = r.id""";
+
+        Connection connection = conn.getConnection();
+        connection.setAutoCommit(false);
+        try {
+            RollupAccumulator rollups = new RollupAccumulator();
+            try (ResultSet rs = conn.prepare(query).executeQuery()) {
+                while (rs.next()) {
+                    SummaryFields summary = new SummaryFields(rs.getDouble(3), rs.getString(2),
+                        rs.getString(1), rs.getInt(4), "");
+                    rollups.add(summary, rs.getDouble(5), rs.getDouble(6));
+                }
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.execute("DELETE FROM rollups");
+            }
+            rollups.writeTo(conn);
+            connection.commit();
+        } catch (SQLException | RuntimeException e) {
+            connection.rollback();
+            throw e;
+        } finally {
+            connection.setAutoCommit(true);
+        }
+    }
+
+    /**
+     * Retrieves the stored totals of every bucket of a period.
+     * Reads only the rollups table, so the cost depends on the number of buckets.
+     *
+     * @param period The grouping to read
+     * @return The buckets ordered by key
+     */
+    public List<Rollup> getRollups(RollupPeriod period) throws SQLException {
+        String query = "SELECT " + ROLLUP_COLUMNS + " FROM rollups WHERE period = ? ORDER BY bucket";
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setString(1, period.name());
+            return readRollups(pstmt);
+        });
+    }
+
+    /**
+     * Retrieves the stored totals of a range of buckets of a period.
+     *
+     * @param period The grouping to read
+     * @param fromBucket First bucket key, inclusive (e.g. 2026-03-01 for DAY, 2026-03 for MONTH)
+     * @param toBucket Last bucket key, inclusive
+     * @return The buckets ordered by key
+     */
+    public List<Rollup> getRollups(RollupPeriod period, String fromBucket, String toBucket) throws SQLException {
+        String query = "SELECT " + ROLLUP_COLUMNS + " FROM rollups WHERE period = ? AND bucket BETWEEN ? AND ? ORDER BY bucket";
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setString(1, period.name());
+            pstmt.setString(2, fromBucket);
+            pstmt.setString(3, toBucket);
+            return readRollups(pstmt);
+        });
+    }
+
+    private static List<Rollup> readRollups(PreparedStatement pstmt) throws SQLException {
+        List<Rollup> rollups = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                rollups.add(new Rollup(RollupPeriod.valueOf(rs.getString("period")), rs.getString("bucket"),
+                    rs.getInt("receipt_count"), rs.getInt("item_count"), rs.getDouble("total_price"),
+                    rs.getDouble("total_protein"), rs.getDouble("total_calories")));
+            }
+        }
+        return rollups;
+    }
+
+    /**
+     * Reads the entries of the extraction's "items" list. Entries that are not
+     * objects are skipped; missing fields become empty names and zero amounts.
+     * Amounts are read by {@link ReceiptJsonCodec#amountOf(Object)}.
+     */
+    private static List<Item> itemsOf(Map<String, Object> data) {
+        List<Item> items = new ArrayList<>();
+        if (!(data.get("items") instanceof List<?> entries)) {
+            return items;
+        }
+        for (Object entry : entries) {
+            if (entry instanceof Map<?, ?> fields) {
+                Object name = fields.get("name");
+                items.add(new Item(name != null ? name.toString() : "",
+                    ReceiptJsonCodec.amountOf(fields.get("price")), ReceiptJsonCodec.amountOf(fields.get("protein")),
+                    ReceiptJsonCodec.amountOf(fields.get("calories"))));
+            }
+        }
+        return items;
+    }
+
+    /**
+     * Retrieves the line items of a receipt.
+     *
+     * @param receiptId The receipt ID
+     * @return The items in extraction order
+     */
+    public List<Item> getItemsForReceipt(int receiptId) throws SQLException {
+        String query = "SELECT " + ITEM_COLUMNS + " FROM items WHERE receipt_id = ? ORDER BY id";
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setInt(1, receiptId);
+            return readItems(pstmt);
+        });
+    }
+
+    /**
+     * Finds every purchase of an item by its exact name.
+     *
+     * @param name The item name
+     * @return Matching items, oldest first
+     */
+    public List<Item> findItemsByName(String name) throws SQLException {
+        String query = "SELECT " + ITEM_COLUMNS + " FROM items WHERE name = ? ORDER BY id";
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setString(1, name);
+            return readItems(pstmt);
+        });
+    }
+
+    /**
+     * Retrieves the items bought within a date range.
+     *
+     * @param fromDate First receipt date, inclusive (ISO yyyy-MM-dd)
+     * @param toDate Last receipt date, inclusive (ISO yyyy-MM-dd)
+     * @return Matching items ordered by date
+     */
+    public List<Item> getItemsBetween(String fromDate, String toDate) throws SQLException {
+        String query = "SELECT " + ITEM_COLUMNS + " FROM items WHERE receipt_date BETWEEN ? AND ? ORDER BY receipt_date, id";
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setString(1, fromDate);
+            pstmt.setString(2, toDate);
+            return readItems(pstmt);
+        });
+    }
+
+    /**
+     * Sums price, protein and calories of the items bought within a date range.
+     *
+     * @param fromDate First receipt date, inclusive (ISO yyyy-MM-dd)
+     * @param toDate Last receipt date, inclusive (ISO yyyy-MM-dd)
+     * @return The totals; all zero if nothing was bought
+     */
+    public ItemTotals sumItemsBetween(String fromDate, String toDate) throws SQLException {
+        String query = """
+            SELECT count(*), total(price), total(protein), total(calories)
+            FROM items WHERE receipt_date BETWEEN ? AND ?""";
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setString(1, fromDate);
+            pstmt.setString(2, toDate);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                rs.next();
+                return new ItemTotals(rs.getInt(1), rs.getDouble(2), rs.getDouble(3), rs.getDouble(4));
+            }
+        });
+    }
+
+    /**
+     * Retrieves the receipts that contain an item, with their items loaded from the items table.
+     *
+     * @param itemName Exact item name
+     * @return Matching receipts, newest first
+     */
+    public List<Receipt> findReceiptsWithItem(String itemName) throws SQLException {
+        String receiptsQuery = """
+            SELECT id, filename, processed_date, total_price, store_name, receipt_date FROM receipts
+            WHERE id IN (SELECT receipt_id FROM items WHERE name = ?)
+            ORDER BY id DESC""";
+        String itemsQuery = "SELECT " + ITEM_COLUMNS + " FROM items WHERE receipt_id = ? ORDER BY id";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(receiptsQuery);
+            pstmt.setString(1, itemName);
+            List<Receipt> receipts = new ArrayList<>();
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    Receipt receipt = new Receipt(rs.getString("filename"),
+                        LocalDateTime.parse(rs.getString("processed_date")), rs.getDouble("total_price"));
+                    receipt.setId(rs.getInt("id"));
+                    receipt.setStoreName(rs.getString("store_name"));
+                    receipt.setReceiptDate(rs.getString("receipt_date"));
+                    receipts.add(receipt);
+                }
+            }
+
+            PreparedStatement items = conn.prepare(itemsQuery);
+            for (Receipt receipt : receipts) {
+                items.setInt(1, receipt.getId());
+                receipt.setItems(readItems(items));
+            }
+            return receipts;
+        });
+    }
+
+    private static List<Item> readItems(PreparedStatement pstmt) throws SQLException {
+        List<Item> items = new ArrayList<>();
+        try (ResultSet rs = pstmt.executeQuery()) {
+            while (rs.next()) {
+                Item item = new Item(rs.getString("name"), rs.getDouble("price"),
+                    rs.getDouble("protein"), rs.getDouble("calories"));
+                item.setId(rs.getInt("id"));
+                item.setReceiptId(rs.getInt("receipt_id"));
+                items.add(item);
+            }
+        }
+        return items;
+    }
+
     /**
      * Retrieves all receipts from the database.
-     * 
+     *
      * @return List of receipt data as maps
      */
     public List<Map<String, Object>> getAllReceipts() throws SQLException {
-        List<Map<String, Object>> receipts = new ArrayList<>();
         String query = "SELECT id, filename, processed_date, raw_data FROM receipts ORDER BY processed_date DESC";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             Statement stmt = conn.createStatement();
-             ResultSet rs = stmt.executeQuery(query)) {
-            
-            while (rs.next()) {
-                Map<String, Object> receiptData = gson.fromJson(rs.getString("raw_data"), Map.class);
-                receiptData.put("id", rs.getInt("id"));
-                receiptData.put("filename", rs.getString("filename"));
-                receiptData.put("processed_date", rs.getString("processed_date"));
-                receipts.add(receiptData);
+
+        return withReader(conn -> {
+            List<Map<String, Object>> receipts = new ArrayList<>();
+            try (ResultSet rs = conn.prepare(query).executeQuery()) {
+                while (rs.next()) {
+                    Map<String, Object> receiptData = ReceiptJsonCodec.toMap(rs.getString("raw_data"));
+                    receiptData.put("id", rs.getInt("id"));
+                    receiptData.put("filename", rs.getString("filename"));
+                    receiptData.put("processed_date", rs.getString("processed_date"));
+                    receipts.add(receiptData);
+                }
             }
+            return receipts;
+        });
+    }
+
+    /**
+     * Retrieves one page of the receipts list using keyset pagination.
+     * Reads only the summary columns; raw_data is not touched.
+     *
+     * @param sort The column to sort by
+     * @param ascending Sort direction
+     * @param after Key of the last row of the previous page; null starts at the first row
+     * @param limit Maximum number of receipts to return
+     * @return Receipt summaries in list order
+     */
+    public List<ReceiptSummary> getReceiptPage(ReceiptSort sort, boolean ascending, PageKey after, int limit)
+            throws SQLException {
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM receipts"
+            + keysetCondition(sort, ascending, after) + orderBy(sort, ascending) + " LIMIT ?";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            int index = bindKeyset(pstmt, sort, after);
+            pstmt.setInt(index, limit);
+
+            List<ReceiptSummary> page = new ArrayList<>(limit);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    page.add(readSummary(rs));
+                }
+            }
+            return page;
+        });
+    }
+
+    /**
+     * Retrieves the list rows of the given receipts, e.g. the ones a batch has just stored.
+     * Reads the ID range the receipts span, which is short because batch IDs are consecutive.
+     *
+     * @param ids Receipt IDs
+     * @return Receipt summaries in ID order
+     */
+    public List<ReceiptSummary> getReceiptSummaries(List<Integer> ids) throws SQLException {
+        if (ids.isEmpty()) {
+            return List.of();
         }
-        
-        return receipts;
+        Set<Integer> wanted = new HashSet<>(ids);
+        String query = "SELECT " + SUMMARY_COLUMNS + " FROM receipts WHERE id BETWEEN ? AND ? ORDER BY id";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setInt(1, Collections.min(ids));
+            pstmt.setInt(2, Collections.max(ids));
+
+            List<ReceiptSummary> summaries = new ArrayList<>(ids.size());
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    ReceiptSummary summary = readSummary(rs);
+                    if (wanted.contains(summary.getId())) {
+                        summaries.add(summary);
+                    }
+                }
+            }
+            return summaries;
+        });
     }
-    
+
+    /**
+     * Finds the key a given number of rows into the receipts list, walking only the sort index.
+     * Used to jump to a page without loading the pages before it.
+     *
+     * @param sort The column to sort by
+     * @param ascending Sort direction
+     * @param after Start after this key; null starts at the first row
+     * @param offset Number of receipts to skip
+     * @return The key at that position, or null if the list is shorter
+     */
+    public PageKey findPageKeyAt(ReceiptSort sort, boolean ascending, PageKey after, int offset)
+            throws SQLException {
+        String query = "SELECT " + sort.column() + ", id FROM receipts"
+            + keysetCondition(sort, ascending, after) + orderBy(sort, ascending) + " LIMIT 1 OFFSET ?";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            int index = bindKeyset(pstmt, sort, after);
+            pstmt.setInt(index, offset);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                return rs.next() ? new PageKey(rs.getObject(1), rs.getInt(2)) : null;
+            }
+        });
+    }
+
+    /**
+     * Builds the page key of a row for the given sort column.
+     */
+    public static PageKey pageKeyOf(ReceiptSummary receipt, ReceiptSort sort) {
+        Object value = switch (sort) {
+            case ID -> receipt.getId();
+            case FILENAME -> receipt.getFilename();
+            case STORE -> receipt.getStoreName();
+            case RECEIPT_DATE -> receipt.getReceiptDate();
+            case TOTAL -> receipt.getTotalPrice();
+        };
+        return new PageKey(value, receipt.getId());
+    }
+
+    private static String keysetCondition(ReceiptSort sort, boolean ascending, PageKey after) {
+        if (after == null) {
+            return "";
+        }
+        String operator = ascending ? " > " : " < ";
+        if (sort == ReceiptSort.ID) {
+            return " WHERE id" + operator + "?";
+        }
+        // Row-value comparison walks the (column, rowid) index directly
+        return " WHERE (" + sort.column() + ", id)" + operator + "(?, ?)";
+    }
+
+    private static String orderBy(ReceiptSort sort, boolean ascending) {
+        String direction = ascending ? " ASC" : " DESC";
+        if (sort == ReceiptSort.ID) {
+            return " ORDER BY id" + direction;
+        }
+        return " ORDER BY " + sort.column() + direction + ", id" + direction;
+    }
+
+    private static int bindKeyset(PreparedStatement pstmt, ReceiptSort sort, PageKey after) throws SQLException {
+        int index = 1;
+        if (after != null) {
+            if (sort != ReceiptSort.ID) {
+                pstmt.setObject(index++, after.sortValue());
+            }
+            pstmt.setInt(index++, after.id());
+        }
+        return index;
+    }
+
+    private static ReceiptSummary readSummary(ResultSet rs) throws SQLException {
+        ReceiptSummary summary = new ReceiptSummary(rs.getInt("id"), rs.getString("filename"),
+            rs.getString("processed_date"), rs.getString("preview"));
+        summary.setStoreName(rs.getString("store_name"));
+        summary.setReceiptDate(rs.getString("receipt_date"));
+        summary.setTotalPrice(rs.getDouble("total_price"));
+        summary.setItemCount(rs.getInt("item_count"));
+        return summary;
+    }
+
     /**
      * Retrieves the raw data for a specific receipt.
-     * 
+     *
      * @param receiptId The receipt ID
      * @return The raw dictionary data
      */
     public Map<String, Object> getReceiptData(int receiptId) throws SQLException {
         String query = "SELECT raw_data FROM receipts WHERE id = ?";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
             pstmt.setInt(1, receiptId);
             try (ResultSet rs = pstmt.executeQuery()) {
                 if (rs.next()) {
-                    return gson.fromJson(rs.getString("raw_data"), Map.class);
+                    return ReceiptJsonCodec.toMap(rs.getString("raw_data"));
                 }
             }
-        }
-        
-        return null;
+            return null;
+        });
+    }
+
+    /**
+     * Retrieves a receipt bound to the typed model, without an intermediate map.
+     *
+     * @param receiptId The receipt ID
+     * @return The receipt with its items, or null if there is no such receipt
+     */
+    public Receipt getReceipt(int receiptId) throws SQLException {
+        String query = "SELECT id, filename, processed_date, raw_data FROM receipts WHERE id = ?";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setInt(1, receiptId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                if (!rs.next()) {
+                    return null;
+                }
+                Receipt receipt = ReceiptJsonCodec.toReceipt(rs.getString("raw_data"));
+                receipt.setId(rs.getInt("id"));
+                receipt.setFilename(rs.getString("filename"));
+                receipt.setProcessedDate(LocalDateTime.parse(rs.getString("processed_date")));
+                return receipt;
+            }
+        });
+    }
+
+    /**
+     * Streams every stored receipt, oldest first, without loading them all into memory.
+     *
+     * @param visitor Called once per receipt
+     */
+    public void forEachReceipt(ReceiptVisitor visitor) throws Exception {
+        forEachReceipt(0, visitor);
+    }
+
+    /**
+     * Streams the receipts stored after a given one, oldest first.
+     *
+     * @param afterId Only receipts with a higher ID are visited
+     * @param visitor Called once per receipt
+     */
+    public void forEachReceipt(int afterId, ReceiptVisitor visitor) throws Exception {
+        String query = "SELECT id, filename, processed_date, content_hash, raw_data FROM receipts WHERE id > ? ORDER BY id";
+
+        withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            pstmt.setInt(1, afterId);
+            try (ResultSet rs = pstmt.executeQuery()) {
+                while (rs.next()) {
+                    visitor.visit(new StoredReceipt(rs.getInt(1), rs.getString(2), rs.getString(3),
+                        rs.getString(4), rs.getString(5)));
+                }
+            } catch (SQLException e) {
+                throw e;
+            } catch (Exception e) {
+                throw new SQLException("Receipt visitor failed: " + e.getMessage(), e);
+            }
+            return null;
+        });
+    }
+
+    /**
+     * Counts the stored receipts.
+     *
+     * @return Number of receipts
+     */
+    public int countReceipts() throws SQLException {
+        return withReader(conn -> {
+            try (ResultSet rs = conn.prepare("SELECT COUNT(*) FROM receipts").executeQuery()) {
+                return rs.next() ? rs.getInt(1) : 0;
+            }
+        });
     }
-    
+
+    /**
+     * Counts the stored receipts and finds the newest ID in the same read.
+     *
+     * @return The count and the highest ID, 0 if there are no receipts
+     */
+    public ReceiptCount countReceiptsWithMaxId() throws SQLException {
+        return withReader(conn -> {
+            try (ResultSet rs = conn.prepare("SELECT COUNT(*), COALESCE(MAX(id), 0) FROM receipts").executeQuery()) {
+                return rs.next() ? new ReceiptCount(rs.getInt(1), rs.getInt(2)) : new ReceiptCount(0, 0);
+            }
+        });
+    }
+
     /**
      * Checks if a receipt with the given filename already exists.
-     * 
+     * Answered from memory; the set is loaded at startup and updated on every insert.
+     *
      * @param filename The filename to check
      * @return true if the receipt exists
      */
-    public boolean receiptExists(String filename) throws SQLException {
-        String query = "SELECT COUNT(*) FROM receipts WHERE filename = ?";
-        
-        try (Connection conn = DriverManager.getConnection(DB_URL);
-             PreparedStatement pstmt = conn.prepareStatement(query)) {
-            
-            pstmt.setString(1, filename);
+    public boolean receiptExists(String filename) {
+        return knownFilenames.contains(filename);
+    }
+
+    /**
+     * Checks if a receipt with the given content fingerprint already exists.
+     * Answered from memory like {@link #receiptExists(String)}.
+     *
+     * @param contentHash SHA-256 fingerprint of the file contents
+     * @return true if the receipt exists
+     */
+    public boolean receiptExistsByHash(String contentHash) {
+        return knownContentHashes.contains(contentHash);
+    }
+
+    /**
+     * Attaches a fingerprint to a receipt stored before content hashing existed.
+     * Lets a re-scan recognize those receipts by name once instead of re-extracting them.
+     *
+     * @param filename The filename of the receipt
+     * @param contentHash SHA-256 fingerprint of the file contents
+     * @return true if an unhashed receipt with this filename was found and claimed
+     */
+    public boolean claimUnhashedReceipt(String filename, String contentHash) throws SQLException {
+        if (!unhashedFilenames.contains(filename)) {
+            return false;
+        }
+
+        String update = """
+            UPDATE receipts SET content_hash = ?
+            WHERE id = (SELECT id FROM receipts WHERE filename = ? AND content_hash IS NULL LIMIT 1)
+            """;
+
+        synchronized (writeLock) {
+            PreparedStatement pstmt = writer.prepare(update);
+            pstmt.setString(1, contentHash);
+            pstmt.setString(2, filename);
+            if (pstmt.executeUpdate() == 0) {
+                unhashedFilenames.remove(filename);
+                return false;
+            }
+
+            knownContentHashes.add(contentHash);
+            // Another file with the same name may still own an unhashed row
+            PreparedStatement remaining = writer.prepare(
+                "SELECT COUNT(*) FROM receipts WHERE filename = ? AND content_hash IS NULL");
+            remaining.setString(1, filename);
+            try (ResultSet rs = remaining.executeQuery()) {
+                if (rs.next() && rs.getInt(1) == 0) {
+                    unhashedFilenames.remove(filename);
+                }
+            }
+            return true;
+        }
+    }
+
+    private void remember(String filename, String contentHash) {
+        knownFilenames.add(filename);
+        if (contentHash != null) {
+            knownContentHashes.add(contentHash);
+        } else {
+            unhashedFilenames.add(filename);
+        }
+    }
+
+    /**
+     * Writes state changes to the ingestion journal in one transaction.
+     * The attempts of each change are added to the file's stored count, and a change
+     * without an error keeps the last recorded one.
+     *
+     * @param changes The changes in the order they happened; later ones win
+     */
+    public void writeJournal(List<JournalEntry> changes) throws SQLException {
+        if (changes.isEmpty()) {
+            return;
+        }
+
+        synchronized (writeLock) {
+            Connection conn = writer.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = writer.prepare(UPSERT_JOURNAL_ENTRY);
+                for (JournalEntry change : changes) {
+                    pstmt.setString(1, change.path());
+                    pstmt.setString(2, change.contentHash());
+                    pstmt.setString(3, change.state().name());
+                    pstmt.setInt(4, change.attempts());
+                    pstmt.setString(5, change.lastError());
+                    pstmt.setLong(6, change.updatedAt());
+                    pstmt.addBatch();
+                }
+                pstmt.executeBatch();
+                conn.commit();
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
+            }
+        }
+    }
+
+    /**
+     * Retrieves the journal entries in the given states.
+     *
+     * @param states The states to list
+     * @return The entries, oldest change first
+     */
+    public List<JournalEntry> getJournalEntries(JournalState... states) throws SQLException {
+        if (states.length == 0) {
+            return List.of();
+        }
+        StringJoiner placeholders = new StringJoiner(", ", "(", ")");
+        for (int i = 0; i < states.length; i++) {
+            placeholders.add("?");
+        }
+        String query = "SELECT " + JOURNAL_COLUMNS + " FROM ingest_journal WHERE state IN " + placeholders
+            + " ORDER BY updated_at, path";
+
+        return withReader(conn -> {
+            PreparedStatement pstmt = conn.prepare(query);
+            for (int i = 0; i < states.length; i++) {
+                pstmt.setString(i + 1, states[i].name());
+            }
+
+            List<JournalEntry> entries = new ArrayList<>();
             try (ResultSet rs = pstmt.executeQuery()) {
-                return rs.next() && rs.getInt(1) > 0;
+                while (rs.next()) {
+                    entries.add(new JournalEntry(rs.getString("path"), rs.getString("content_hash"),
+                        JournalState.valueOf(rs.getString("state")), rs.getInt("attempts"),
+                        rs.getString("last_error"), rs.getLong("updated_at")));
+                }
+            }
+            return entries;
+        });
+    }
+
+    /**
+     * Counts the journal entries per state.
+     *
+     * @return Number of files in each state; states without files are 0
+     */
+    public Map<JournalState, Integer> countJournalEntries() throws SQLException {
+        return withReader(conn -> {
+            Map<JournalState, Integer> counts = new EnumMap<>(JournalState.class);
+            for (JournalState state : JournalState.values()) {
+                counts.put(state, 0);
+            }
+            String query = "SELECT state, COUNT(*) FROM ingest_journal GROUP BY state";
+            try (ResultSet rs = conn.prepare(query).executeQuery()) {
+                while (rs.next()) {
+                    counts.put(JournalState.valueOf(rs.getString(1)), rs.getInt(2));
+                }
+            }
+            return counts;
+        });
+    }
+
+    /**
+     * Marks receipts as committed to Git.
+     *
+     * @param storedBefore Entries stored up to this time, in epoch milliseconds, are in the commit
+     * @return Number of entries marked
+     */
+    public int markJournalCommitted(long storedBefore) throws SQLException {
+        String update = "UPDATE ingest_journal SET state = ?, updated_at = ? WHERE state = ? AND updated_at <= ?";
+        synchronized (writeLock) {
+            PreparedStatement pstmt = writer.prepare(update);
+            pstmt.setString(1, JournalState.COMMITTED.name());
+            pstmt.setLong(2, System.currentTimeMillis());
+            pstmt.setString(3, JournalState.STORED.name());
+            pstmt.setLong(4, storedBefore);
+            return pstmt.executeUpdate();
+        }
+    }
+
+    /**
+     * Puts failed files back in line for processing. Their attempt counts and
+     * last errors are kept.
+     *
+     * @param paths The files to re-queue, or null for every failed file
+     * @return Number of files re-queued
+     */
+    public int requeueFailed(Collection<String> paths) throws SQLException {
+        String update = "UPDATE ingest_journal SET state = ?, updated_at = ? WHERE state = ?";
+        synchronized (writeLock) {
+            if (paths == null) {
+                PreparedStatement pstmt = writer.prepare(update);
+                pstmt.setString(1, JournalState.DISCOVERED.name());
+                pstmt.setLong(2, System.currentTimeMillis());
+                pstmt.setString(3, JournalState.FAILED.name());
+                return pstmt.executeUpdate();
+            }
+
+            Connection conn = writer.getConnection();
+            conn.setAutoCommit(false);
+            try {
+                PreparedStatement pstmt = writer.prepare(update + " AND path = ?");
+                long now = System.currentTimeMillis();
+                for (String path : paths) {
+                    pstmt.setString(1, JournalState.DISCOVERED.name());
+                    pstmt.setLong(2, now);
+                    pstmt.setString(3, JournalState.FAILED.name());
+                    pstmt.setString(4, path);
+                    pstmt.addBatch();
+                }
+                int requeued = 0;
+                for (int count : pstmt.executeBatch()) {
+                    requeued += Math.max(count, 0);
+                }
+                conn.commit();
+                return requeued;
+            } catch (SQLException | RuntimeException e) {
+                conn.rollback();
+                throw e;
+            } finally {
+                conn.setAutoCommit(true);
             }
         }
     }
+
+    /**
+     * Copies the WAL contents into the main database file, so the file
+     * on disk (e.g. the one committed to Git) is up to date.
+     */
+    public void checkpoint() throws SQLException {
+        synchronized (writeLock) {
+            try (Statement stmt = writer.getConnection().createStatement()) {
+                stmt.execute("PRAGMA wal_checkpoint(TRUNCATE)");
+            }
+        }
+    }
+
+    /**
+     * Closes all connections. Closing the last connection checkpoints the WAL.
+     * Reads still running finish, and their connections are closed when returned;
+     * reads started afterwards fail.
+     */
+    @Override
+    public synchronized void close() throws SQLException {
+        if (writer == null) {
+            return;
+        }
+
+        closed = true;
+        SQLException failure = closeIdleReaders();
+        synchronized (writeLock) {
+            try {
+                writer.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+            writer = null;
+        }
+
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    /**
+     * Closes the reader connections that are not in use.
+     *
+     * @return The last failure, or null
+     */
+    private SQLException closeIdleReaders() {
+        SQLException failure = null;
+        PooledConnection reader;
+        while ((reader = readers.poll()) != null) {
+            try {
+                reader.close();
+            } catch (SQLException e) {
+                failure = e;
+            }
+        }
+        return failure;
+    }
+
+    /**
+     * Runs a read on a pooled reader connection.
+     *
+     * @throws SQLException if the read fails, or once the database is closed
+     */
+    private <T> T withReader(SqlFunction<T> function) throws SQLException {
+        PooledConnection conn;
+        try {
+            do {
+                if (closed) {
+                    throw new SQLException("Database is closed");
+                }
+                conn = readers.poll(READER_WAIT_MILLIS, TimeUnit.MILLISECONDS);
+            } while (conn == null);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("Interrupted while waiting for a database connection", e);
+        }
+
+        long start = System.nanoTime();
+        try {
+            if (closed) {
+                throw new SQLException("Database is closed");
+            }
+            return function.apply(conn);
+        } finally {
+            readers.add(conn);
+            // close() may have drained the pool while this reader was out
+            if (closed) {
+                SQLException failure = closeIdleReaders();
+                if (failure != null) {
+                    System.err.println("Failed to close database connection: " + failure.getMessage());
+                }
+            }
+            Metrics.recordSince(Metrics.Stage.DB_READ, start);
+        }
+    }
+
+    /**
+     * Receives receipts streamed by {@link #forEachReceipt(ReceiptVisitor)}.
+     */
+    @FunctionalInterface
+    public interface ReceiptVisitor {
+        void visit(StoredReceipt receipt) throws Exception;
+    }
+
+    @FunctionalInterface
+    private interface SqlFunction<T> {
+        T apply(PooledConnection conn) throws SQLException;
+    }
 }
@@ -0,0 +1,16 @@
+package com.receiptprocessor.db;
+
+import java.util.Map;
+
+/**
+ * A receipt read back from the NDJSON export, to be restored with its original ID.
+ *
+ * @param id The receipt ID
+ * @param filename The filename of the receipt
+ * @param processedDate When the receipt was first stored (ISO-8601)
+ * @param contentHash SHA-256 fingerprint of the file contents, or null for old rows
+ * @param data The extraction data
+ */
+public record ExportedReceipt(int id, String filename, String processedDate, String contentHash,
+                              Map<String, Object> data) {
+}
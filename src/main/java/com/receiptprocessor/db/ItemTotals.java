@@ -0,0 +1,7 @@
+package com.receiptprocessor.db;
+
+/**
+ * Sums over a set of line items.
+ */
+public record ItemTotals(int itemCount, double totalPrice, double totalProtein, double totalCalories) {
+}
@@ -0,0 +1,15 @@
+package com.receiptprocessor.db;
+
+/**
+ * One file in the ingestion journal.
+ *
+ * @param path Absolute path of the file
+ * @param contentHash SHA-256 fingerprint of the file contents
+ * @param state How far the file got
+ * @param attempts Number of extraction attempts
+ * @param lastError Message of the last failure, or null
+ * @param updatedAt When the state last changed, in epoch milliseconds
+ */
+public record JournalEntry(String path, String contentHash, JournalState state, int attempts, String lastError,
+                           long updatedAt) {
+}
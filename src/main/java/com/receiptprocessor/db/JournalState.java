@@ -0,0 +1,19 @@
+package com.receiptprocessor.db;
+
+/**
+ * Progress of one file through ingestion, as recorded in the ingestion journal.
+ */
+public enum JournalState {
+    /** Found to be new and queued for extraction. */
+    DISCOVERED,
+    /** Handed to the extractor; counts as an attempt. */
+    EXTRACTING,
+    /** Failed transiently; waiting for its backoff before another attempt. */
+    RETRYING,
+    /** Receipt saved to the database. */
+    STORED,
+    /** Database committed to Git with the receipt in it. */
+    COMMITTED,
+    /** Failed permanently or too often; skipped by scans until re-queued. The dead letters of ingestion. */
+    FAILED
+}
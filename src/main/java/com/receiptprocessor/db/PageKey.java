@@ -0,0 +1,11 @@
+package com.receiptprocessor.db;
+
+/**
+ * Position in the receipts list for keyset pagination: the sort value and ID
+ * of the last row of the previous page.
+ *
+ * @param sortValue Value of the sort column
+ * @param id The receipt ID, breaking ties between equal sort values
+ */
+public record PageKey(Object sortValue, int id) {
+}
@@ -0,0 +1,14 @@
+package com.receiptprocessor.db;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * A receipt waiting to be inserted by {@link DatabaseManager#saveReceiptsBatch(List)}.
+ *
+ * @param filename The filename of the receipt
+ * @param contentHash SHA-256 fingerprint of the file contents
+ * @param data The dictionary data from the extraction function
+ */
+public record PendingReceipt(String filename, String contentHash, Map<String, Object> data) {
+}
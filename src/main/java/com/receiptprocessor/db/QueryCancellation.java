@@ -0,0 +1,54 @@
+package com.receiptprocessor.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+
+/**
+ * Lets another thread stop a read that is no longer wanted, e.g. a search for
+ * text the user has since changed. Cancelling interrupts the query inside SQLite,
+ * so its reader connection is freed at once rather than when the query finishes.
+ * Use one instance per query.
+ */
+public class QueryCancellation {
+
+    private PreparedStatement running;
+    private boolean cancelled;
+
+    /**
+     * Cancels the query: interrupts it if it is running, or makes it fail on start.
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (running != null) {
+            try {
+                running.cancel();
+            } catch (SQLException e) {
+                System.err.println("Failed to cancel query: " + e.getMessage());
+            }
+        }
+    }
+
+    public synchronized boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * Registers the statement about to run.
+     *
+     * @throws SQLException if the query was already cancelled
+     */
+    synchronized void started(PreparedStatement statement) throws SQLException {
+        if (cancelled) {
+            throw new SQLException("Query cancelled");
+        }
+        running = statement;
+    }
+
+    /**
+     * Unregisters the statement before its connection goes back to the pool,
+     * so a late cancel cannot interrupt the connection's next user.
+     */
+    synchronized void finished() {
+        running = null;
+    }
+}
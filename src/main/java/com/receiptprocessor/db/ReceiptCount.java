@@ -0,0 +1,8 @@
+package com.receiptprocessor.db;
+
+/**
+ * Number of stored receipts and the highest receipt ID, read from one snapshot.
+ * Receipts stored later have higher IDs.
+ */
+public record ReceiptCount(int count, int maxId) {
+}
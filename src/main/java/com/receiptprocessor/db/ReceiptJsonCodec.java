@@ -0,0 +1,326 @@
+package com.receiptprocessor.db;
+
+import com.receiptprocessor.metrics.Metrics;
+import com.receiptprocessor.model.Item;
+import com.receiptprocessor.model.Receipt;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact JSON codec for the stored extraction data (raw_data), built on Gson's streaming API.
+ * Documents are written without whitespace and read either into ordered maps,
+ * where integral numbers stay {@code Long} instead of becoming {@code Double},
+ * or straight into {@link Receipt} and {@link Item}. Keys without a model property
+ * are kept in the models' extra fields and written back out.
+ * Every call is timed as {@link Metrics.Stage#SERIALIZE}.
+ */
+public final class ReceiptJsonCodec {
+
+    private static final String TOTAL_PRICE = "total_price";
+    private static final String STORE_NAME = "store_name";
+    private static final String DATE = "date";
+    private static final String ITEMS = "items";
+
+    private static final String ITEM_NAME = "name";
+    private static final String ITEM_PRICE = "price";
+    private static final String ITEM_PROTEIN = "protein";
+    private static final String ITEM_CALORIES = "calories";
+
+    private ReceiptJsonCodec() {
+    }
+
+    /**
+     * Serializes an extraction dictionary as compact JSON.
+     *
+     * @param data Maps, lists, strings, numbers, booleans and nulls
+     * @return The JSON document
+     */
+    public static String toJson(Map<String, Object> data) {
+        long start = System.nanoTime();
+        StringWriter buffer = new StringWriter(256);
+        try (JsonWriter writer = new JsonWriter(buffer)) {
+            writeValue(writer, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Metrics.recordSince(Metrics.Stage.SERIALIZE, start);
+        return buffer.toString();
+    }
+
+    /**
+     * Serializes a receipt as compact JSON in the extraction-data layout.
+     * Only the extracted fields are written; id, filename and processed date live in their own columns.
+     *
+     * @param receipt The receipt
+     * @return The JSON document
+     */
+    public static String toJson(Receipt receipt) {
+        long start = System.nanoTime();
+        StringWriter buffer = new StringWriter(256);
+        try (JsonWriter writer = new JsonWriter(buffer)) {
+            writer.beginObject();
+            writer.name(TOTAL_PRICE).value(receipt.getTotalPrice());
+            if (receipt.getStoreName() != null) {
+                writer.name(STORE_NAME).value(receipt.getStoreName());
+            }
+            if (receipt.getReceiptDate() != null) {
+                writer.name(DATE).value(receipt.getReceiptDate());
+            }
+            writer.name(ITEMS).beginArray();
+            for (Item item : receipt.getItems()) {
+                writeItem(writer, item);
+            }
+            writer.endArray();
+            writeFields(writer, receipt.getExtraFields());
+            writer.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        Metrics.recordSince(Metrics.Stage.SERIALIZE, start);
+        return buffer.toString();
+    }
+
+    /**
+     * Parses a JSON object into an ordered map.
+     *
+     * @param json The JSON document
+     * @return The dictionary, or null for a JSON null
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> toMap(String json) {
+        long start = System.nanoTime();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            Map<String, Object> data = (Map<String, Object>) readValue(reader);
+            Metrics.recordSince(Metrics.Stage.SERIALIZE, start);
+            return data;
+        } catch (IOException | IllegalStateException | ClassCastException e) {
+            throw new IllegalArgumentException("Malformed receipt JSON: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads the next JSON object from a reader that is already positioned on it,
+     * e.g. a field of an enclosing document, into an ordered map.
+     *
+     * @param reader The reader
+     * @return The dictionary, or null for a JSON null
+     */
+    @SuppressWarnings("unchecked")
+    public static Map<String, Object> readMap(JsonReader reader) throws IOException {
+        long start = System.nanoTime();
+        try {
+            return (Map<String, Object>) readValue(reader);
+        } catch (IllegalStateException | ClassCastException e) {
+            throw new IOException("Malformed receipt JSON: " + e.getMessage(), e);
+        } finally {
+            Metrics.recordSince(Metrics.Stage.SERIALIZE, start);
+        }
+    }
+
+    /**
+     * Parses a JSON object directly into a receipt and its items.
+     *
+     * @param json The JSON document
+     * @return The receipt; id, filename and processed date are left unset
+     */
+    public static Receipt toReceipt(String json) {
+        long start = System.nanoTime();
+        Receipt receipt = new Receipt();
+        try (JsonReader reader = new JsonReader(new StringReader(json))) {
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                switch (name) {
+                    case TOTAL_PRICE -> receipt.setTotalPrice(readDouble(reader));
+                    case STORE_NAME -> receipt.setStoreName(readString(reader));
+                    case DATE -> receipt.setReceiptDate(readString(reader));
+                    case ITEMS -> {
+                        if (reader.peek() != JsonToken.BEGIN_ARRAY) {
+                            receipt.getExtraFields().put(name, readValue(reader));
+                            break;
+                        }
+                        reader.beginArray();
+                        while (reader.hasNext()) {
+                            receipt.addItem(readItem(reader));
+                        }
+                        reader.endArray();
+                    }
+                    default -> receipt.getExtraFields().put(name, readValue(reader));
+                }
+            }
+            reader.endObject();
+        } catch (IOException | IllegalStateException | NumberFormatException e) {
+            throw new IllegalArgumentException("Malformed receipt JSON: " + e.getMessage(), e);
+        }
+        Metrics.recordSince(Metrics.Stage.SERIALIZE, start);
+        return receipt;
+    }
+
+    private static Item readItem(JsonReader reader) throws IOException {
+        Item item = new Item();
+        reader.beginObject();
+        while (reader.hasNext()) {
+            String name = reader.nextName();
+            switch (name) {
+                case ITEM_NAME -> item.setName(readString(reader));
+                case ITEM_PRICE -> item.setPrice(readDouble(reader));
+                case ITEM_PROTEIN -> item.setEstimatedProtein(readDouble(reader));
+                case ITEM_CALORIES -> item.setEstimatedCalories(readDouble(reader));
+                default -> item.getExtraFields().put(name, readValue(reader));
+            }
+        }
+        reader.endObject();
+        return item;
+    }
+
+    private static void writeItem(JsonWriter writer, Item item) throws IOException {
+        writer.beginObject();
+        if (item.getName() != null) {
+            writer.name(ITEM_NAME).value(item.getName());
+        }
+        writer.name(ITEM_PRICE).value(item.getPrice());
+        writer.name(ITEM_PROTEIN).value(item.getEstimatedProtein());
+        writer.name(ITEM_CALORIES).value(item.getEstimatedCalories());
+        writeFields(writer, item.getExtraFields());
+        writer.endObject();
+    }
+
+    private static void writeFields(JsonWriter writer, Map<?, ?> fields) throws IOException {
+        for (Map.Entry<?, ?> entry : fields.entrySet()) {
+            writer.name(String.valueOf(entry.getKey()));
+            writeValue(writer, entry.getValue());
+        }
+    }
+
+    private static void writeValue(JsonWriter writer, Object value) throws IOException {
+        if (value == null) {
+            writer.nullValue();
+        } else if (value instanceof String) {
+            writer.value((String) value);
+        } else if (value instanceof Number) {
+            writer.value((Number) value);
+        } else if (value instanceof Boolean) {
+            writer.value((Boolean) value);
+        } else if (value instanceof Map) {
+            writer.beginObject();
+            writeFields(writer, (Map<?, ?>) value);
+            writer.endObject();
+        } else if (value instanceof Iterable) {
+            writer.beginArray();
+            for (Object element : (Iterable<?>) value) {
+                writeValue(writer, element);
+            }
+            writer.endArray();
+        } else if (value instanceof Object[]) {
+            writer.beginArray();
+            for (Object element : (Object[]) value) {
+                writeValue(writer, element);
+            }
+            writer.endArray();
+        } else {
+            writer.value(value.toString());
+        }
+    }
+
+    private static Object readValue(JsonReader reader) throws IOException {
+        switch (reader.peek()) {
+            case BEGIN_OBJECT -> {
+                Map<String, Object> map = new LinkedHashMap<>();
+                reader.beginObject();
+                while (reader.hasNext()) {
+                    map.put(reader.nextName(), readValue(reader));
+                }
+                reader.endObject();
+                return map;
+            }
+            case BEGIN_ARRAY -> {
+                List<Object> list = new ArrayList<>();
+                reader.beginArray();
+                while (reader.hasNext()) {
+                    list.add(readValue(reader));
+                }
+                reader.endArray();
+                return list;
+            }
+            case STRING -> {
+                return reader.nextString();
+            }
+            case NUMBER -> {
+                return parseNumber(reader.nextString());
+            }
+            case BOOLEAN -> {
+                return reader.nextBoolean();
+            }
+            case NULL -> {
+                reader.nextNull();
+                return null;
+            }
+            default -> throw new IllegalStateException("Unexpected JSON token: " + reader.peek());
+        }
+    }
+
+    /**
+     * Keeps integral literals integral; everything else becomes a double.
+     */
+    private static Number parseNumber(String literal) {
+        if (literal.indexOf('.') < 0 && literal.indexOf('e') < 0 && literal.indexOf('E') < 0) {
+            try {
+                return Long.parseLong(literal);
+            } catch (NumberFormatException e) {
+                // Out of long range
+            }
+        }
+        return Double.parseDouble(literal);
+    }
+
+    /**
+     * Reads an amount from an extraction dictionary the way {@link #toReceipt(String)} reads
+     * it from JSON: numbers and numeric strings such as {@code "3.50"} count; anything else,
+     * including non-finite values, is 0.
+     */
+    static double amountOf(Object value) {
+        if (value instanceof Number) {
+            return ((Number) value).doubleValue();
+        }
+        if (value instanceof String text) {
+            try {
+                double parsed = Double.parseDouble(text.trim());
+                return Double.isFinite(parsed) ? parsed : 0;
+            } catch (NumberFormatException e) {
+                return 0;
+            }
+        }
+        return 0;
+    }
+
+    private static double readDouble(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return 0;
+        }
+        // Accepts numbers and numeric strings
+        return reader.nextDouble();
+    }
+
+    private static String readString(JsonReader reader) throws IOException {
+        if (reader.peek() == JsonToken.NULL) {
+            reader.nextNull();
+            return null;
+        }
+        if (reader.peek() == JsonToken.BOOLEAN) {
+            return String.valueOf(reader.nextBoolean());
+        }
+        // Numbers are returned as their literal; anything else is malformed
+        return reader.nextString();
+    }
+}
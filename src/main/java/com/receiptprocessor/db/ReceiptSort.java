@@ -0,0 +1,23 @@
+package com.receiptprocessor.db;
+
+/**
+ * Columns the receipts list can be sorted by. Each is backed by an index,
+ * so paging in any order is a keyset walk rather than a sort.
+ */
+public enum ReceiptSort {
+    ID("id"),
+    FILENAME("filename"),
+    STORE("store_name"),
+    RECEIPT_DATE("receipt_date"),
+    TOTAL("total_price");
+
+    private final String column;
+
+    ReceiptSort(String column) {
+        this.column = column;
+    }
+
+    String column() {
+        return column;
+    }
+}
@@ -0,0 +1,16 @@
+package com.receiptprocessor.db;
+
+/**
+ * Stored totals of one rollup bucket.
+ *
+ * @param period The grouping the bucket belongs to
+ * @param bucket The bucket key, e.g. a date, a month or a store name
+ * @param receiptCount Number of receipts in the bucket
+ * @param itemCount Number of line items on those receipts
+ * @param totalPrice Summed receipt totals
+ * @param totalProtein Summed estimated protein of the items
+ * @param totalCalories Summed estimated calories of the items
+ */
+public record Rollup(RollupPeriod period, String bucket, int receiptCount, int itemCount,
+                     double totalPrice, double totalProtein, double totalCalories) {
+}
@@ -0,0 +1,75 @@
+package com.receiptprocessor.db;
+
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Collects rollup deltas in memory, one entry per touched bucket, and adds them
+ * to the rollups table in one batched upsert. Memory grows with the number of
+ * buckets, not the number of receipts.
+ */
+class RollupAccumulator {
+
+    private static final String UPSERT = """
+        INSERT INTO rollups (period, bucket, receipt_count, item_count, total_price, total_protein, total_calories)
+        VALUES (?, ?, ?, ?, ?, ?, ?)
+        ON CONFLICT (period, bucket) DO UPDATE SET
+            receipt_count = receipt_count + excluded.receipt_count,
+            item_count = item_count + excluded.item_count,
+            total_price = total_price + excluded.total_price,
+            total_protein = total_protein + excluded.total_protein,
+            total_calories = total_calories + excluded.total_calories""";
+
+    private record Key(RollupPeriod period, String bucket) {
+    }
+
+    private static final class Totals {
+        int receiptCount;
+        int itemCount;
+        double totalPrice;
+        double totalProtein;
+        double totalCalories;
+    }
+
+    private final Map<Key, Totals> buckets = new HashMap<>();
+
+    /**
+     * Adds one receipt to every period's bucket.
+     */
+    void add(SummaryFields summary, double protein, double calories) {
+        for (RollupPeriod period : RollupPeriod.values()) {
+            Key key = new Key(period, period.bucketOf(summary.receiptDate(), summary.storeName()));
+            Totals totals = buckets.computeIfAbsent(key, k -> new Totals());
+            totals.receiptCount++;
+            totals.itemCount += summary.itemCount();
+            totals.totalPrice += summary.totalPrice();
+            totals.totalProtein += protein;
+            totals.totalCalories += calories;
+        }
+    }
+
+    /**
+     * Adds the collected deltas to the rollups table. Must run inside the caller's transaction.
+     */
+    void writeTo(PooledConnection conn) throws SQLException {
+        if (buckets.isEmpty()) {
+            return;
+        }
+        PreparedStatement pstmt = conn.prepare(UPSERT);
+        for (Map.Entry<Key, Totals> entry : buckets.entrySet()) {
+            Totals totals = entry.getValue();
+            pstmt.setString(1, entry.getKey().period().name());
+            pstmt.setString(2, entry.getKey().bucket());
+            pstmt.setInt(3, totals.receiptCount);
+            pstmt.setInt(4, totals.itemCount);
+            pstmt.setDouble(5, totals.totalPrice);
+            pstmt.setDouble(6, totals.totalProtein);
+            pstmt.setDouble(7, totals.totalCalories);
+            pstmt.addBatch();
+        }
+        pstmt.executeBatch();
+        buckets.clear();
+    }
+}
@@ -0,0 +1,41 @@
+package com.receiptprocessor.db;
+
+import java.time.DayOfWeek;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+
+/**
+ * Groupings the rollup tables keep totals for.
+ * Receipts without a parseable date fall into the empty bucket of the date-based periods.
+ */
+public enum RollupPeriod {
+    /** One bucket per receipt date (yyyy-MM-dd). */
+    DAY,
+    /** One bucket per ISO week, keyed by the date of its Monday (yyyy-MM-dd). */
+    WEEK,
+    /** One bucket per month (yyyy-MM). */
+    MONTH,
+    /** One bucket per store name. */
+    STORE;
+
+    /**
+     * Derives the bucket a receipt belongs to for this period.
+     */
+    String bucketOf(String receiptDate, String storeName) {
+        if (this == STORE) {
+            return storeName;
+        }
+        LocalDate date;
+        try {
+            date = LocalDate.parse(receiptDate);
+        } catch (DateTimeParseException e) {
+            return "";
+        }
+        return switch (this) {
+            case DAY -> date.toString();
+            case WEEK -> date.with(DayOfWeek.MONDAY).toString();
+            case MONTH -> date.toString().substring(0, 7);
+            case STORE -> storeName;
+        };
+    }
+}
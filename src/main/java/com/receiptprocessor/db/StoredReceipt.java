@@ -0,0 +1,13 @@
+package com.receiptprocessor.db;
+
+/**
+ * A receipt row as stored, with its extraction data still serialized.
+ *
+ * @param id The receipt ID
+ * @param filename The filename of the receipt
+ * @param processedDate When the receipt was stored (ISO-8601)
+ * @param contentHash SHA-256 fingerprint of the file contents, or null for old rows
+ * @param rawData The extraction data as JSON
+ */
+public record StoredReceipt(int id, String filename, String processedDate, String contentHash, String rawData) {
+}
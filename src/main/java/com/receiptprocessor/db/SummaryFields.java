@@ -0,0 +1,53 @@
+package com.receiptprocessor.db;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * The list-view columns materialized next to raw_data at insert time,
+ * so listing and sorting never have to parse the stored JSON.
+ */
+record SummaryFields(double totalPrice, String storeName, String receiptDate, int itemCount, String preview) {
+
+    private static final int PREVIEW_FIELDS = 2;
+
+    /**
+     * Derives the summary columns from the extraction dictionary.
+     * Missing or mistyped fields fall back to 0 / empty strings; the total is read
+     * by {@link ReceiptJsonCodec#amountOf(Object)}, like item amounts.
+     */
+    static SummaryFields from(Map<String, Object> data) {
+        Object total = data.get("total_price");
+        Object store = data.get("store_name");
+        Object date = data.get("date");
+        Object items = data.get("items");
+
+        return new SummaryFields(
+            ReceiptJsonCodec.amountOf(total),
+            store instanceof String ? (String) store : "",
+            date instanceof String ? (String) date : "",
+            items instanceof List ? ((List<?>) items).size() : 0,
+            buildPreview(data));
+    }
+
+    /**
+     * Builds a short preview from the first fields of the extraction data.
+     */
+    private static String buildPreview(Map<String, Object> data) {
+        StringBuilder preview = new StringBuilder();
+        int count = 0;
+        for (Map.Entry<String, Object> entry : data.entrySet()) {
+            if (count > 0) preview.append(", ");
+            preview.append(entry.getKey()).append(": ");
+            Object value = entry.getValue();
+            if (value instanceof List) {
+                preview.append("[").append(((List<?>) value).size()).append(" items]");
+            } else {
+                preview.append(value);
+            }
+            count++;
+            if (count >= PREVIEW_FIELDS) break;
+        }
+        return preview.toString();
+    }
+}
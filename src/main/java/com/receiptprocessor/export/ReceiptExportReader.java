@@ -0,0 +1,133 @@
+package com.receiptprocessor.export;
+
+import com.receiptprocessor.db.DatabaseManager;
+import com.receiptprocessor.db.ExportedReceipt;
+import com.receiptprocessor.db.ReceiptJsonCodec;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * Reads the NDJSON export written by {@link ReceiptExportWriter} and rebuilds a database from it.
+ */
+public final class ReceiptExportReader {
+
+    private ReceiptExportReader() {
+    }
+
+    /**
+     * Streams every shard into the database in one pass, oldest shard first, restoring
+     * receipts with their original IDs in transactions of {@code batchSize}. Receipts
+     * exported twice are restored once; an incomplete last line of a shard, left by a
+     * crash, is skipped.
+     *
+     * @param directory Root of the shard tree
+     * @param dbManager An initialized, empty database
+     * @param batchSize Receipts per transaction
+     * @return Number of receipts restored
+     */
+    public static int restore(Path directory, DatabaseManager dbManager, int batchSize) throws Exception {
+        BitSet restored = new BitSet();
+        List<ExportedReceipt> batch = new ArrayList<>(batchSize);
+        int count = 0;
+
+        for (Path shard : shards(directory)) {
+            try (BufferedReader reader = Files.newBufferedReader(shard, StandardCharsets.UTF_8)) {
+                String line = reader.readLine();
+                int lineNumber = 1;
+                while (line != null) {
+                    String next = reader.readLine();
+                    if (!line.isBlank()) {
+                        ExportedReceipt receipt;
+                        try {
+                            receipt = parseLine(line);
+                        } catch (IOException e) {
+                            if (next != null) {
+                                throw new IOException(shard + ":" + lineNumber + ": " + e.getMessage(), e);
+                            }
+                            System.err.println("Skipping incomplete last line of " + shard);
+                            break;
+                        }
+                        if (!restored.get(receipt.id())) {
+                            restored.set(receipt.id());
+                            batch.add(receipt);
+                            if (batch.size() >= batchSize) {
+                                dbManager.restoreReceipts(batch);
+                                count += batch.size();
+                                batch.clear();
+                            }
+                        }
+                    }
+                    line = next;
+                    lineNumber++;
+                }
+            }
+        }
+        dbManager.restoreReceipts(batch);
+        return count + batch.size();
+    }
+
+    /**
+     * Lists the shard files in order, oldest month first.
+     */
+    static List<Path> shards(Path directory) throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.walk(directory)) {
+            return files
+                .filter(file -> Files.isRegularFile(file) && file.getFileName().toString().endsWith(".ndjson"))
+                .sorted()
+                .toList();
+        }
+    }
+
+    /**
+     * Parses one line of the export format.
+     */
+    static ExportedReceipt parseLine(String line) throws IOException {
+        try (JsonReader reader = new JsonReader(new StringReader(line))) {
+            Integer id = null;
+            String filename = null;
+            String processedDate = null;
+            String contentHash = null;
+            Map<String, Object> data = null;
+
+            reader.beginObject();
+            while (reader.hasNext()) {
+                String name = reader.nextName();
+                if (reader.peek() == JsonToken.NULL) {
+                    reader.nextNull();
+                    continue;
+                }
+                switch (name) {
+                    case "id" -> id = reader.nextInt();
+                    case "filename" -> filename = reader.nextString();
+                    case "processed_date" -> processedDate = reader.nextString();
+                    case "content_hash" -> contentHash = reader.nextString();
+                    case "data" -> data = ReceiptJsonCodec.readMap(reader);
+                    default -> reader.skipValue();
+                }
+            }
+            reader.endObject();
+
+            if (id == null || filename == null || processedDate == null || data == null) {
+                throw new IOException("Incomplete receipt line");
+            }
+            return new ExportedReceipt(id, filename, processedDate, contentHash, data);
+        } catch (IllegalStateException | NumberFormatException e) {
+            throw new IOException("Malformed receipt line: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,179 @@
+package com.receiptprocessor.export;
+
+import com.receiptprocessor.db.DatabaseManager;
+import com.receiptprocessor.db.StoredReceipt;
+import com.google.gson.stream.JsonWriter;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Keeps an append-only NDJSON copy of the receipts, one line per receipt, in monthly
+ * shard files ({@code 2026/2026-03.ndjson}) by the month the receipt was stored.
+ * <p>
+ * This is what gets committed to Git in export versioning mode instead of the binary
+ * database: existing lines never change and only the current month's shard grows, so
+ * each commit adds a delta proportional to the new receipts. The raw extraction JSON is
+ * copied through from the database without being parsed.
+ */
+public class ReceiptExportWriter {
+
+    private static final int TAIL_CHUNK_BYTES = 8192;
+
+    private final Path directory;
+    private int lastExportedId;
+
+    /**
+     * @param directory Root of the shard tree; created if missing
+     */
+    public ReceiptExportWriter(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * Finds the newest exported receipt in the last shard. A line left incomplete by
+     * a crash during an append is cut off, so the next append starts on a clean line.
+     */
+    public void open() throws IOException {
+        Files.createDirectories(directory);
+        List<Path> shards = ReceiptExportReader.shards(directory);
+        lastExportedId = shards.isEmpty() ? 0 : lastIdOf(shards.get(shards.size() - 1));
+    }
+
+    /**
+     * Appends every receipt stored since the last append.
+     *
+     * @param dbManager The database to export from
+     * @return Number of receipts appended
+     */
+    public int append(DatabaseManager dbManager) throws Exception {
+        Map<Path, Writer> writers = new HashMap<>();
+        int[] appended = {0};
+        int[] lastId = {lastExportedId};
+        try {
+            dbManager.forEachReceipt(lastExportedId, receipt -> {
+                Path shard = directory.resolve(shardOf(receipt.processedDate()));
+                Writer writer = writers.get(shard);
+                if (writer == null) {
+                    Files.createDirectories(shard.getParent());
+                    writer = Files.newBufferedWriter(shard, StandardCharsets.UTF_8,
+                        StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+                    writers.put(shard, writer);
+                }
+                writeLine(writer, receipt);
+                lastId[0] = receipt.id();
+                appended[0]++;
+            });
+        } finally {
+            IOException failure = null;
+            for (Writer writer : writers.values()) {
+                try {
+                    writer.close();
+                } catch (IOException e) {
+                    failure = e;
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+        // Only advanced once everything is on disk; a failed append is repeated, and restore skips the duplicates
+        lastExportedId = lastId[0];
+        return appended[0];
+    }
+
+    /**
+     * Gets the ID of the newest receipt in the export.
+     *
+     * @return The ID, or 0 if nothing was exported yet
+     */
+    public int getLastExportedId() {
+        return lastExportedId;
+    }
+
+    /**
+     * Writes a receipt as one line of the export format:
+     * {@code {"id":..,"filename":..,"processed_date":..,"content_hash":..,"data":{..}}}.
+     *
+     * @param writer The target; a newline is written after the object
+     * @param receipt The stored receipt
+     */
+    public static void writeLine(Writer writer, StoredReceipt receipt) throws IOException {
+        JsonWriter line = new JsonWriter(writer);
+        line.beginObject();
+        line.name("id").value(receipt.id());
+        line.name("filename").value(receipt.filename());
+        line.name("processed_date").value(receipt.processedDate());
+        line.name("content_hash").value(receipt.contentHash());
+        line.name("data").jsonValue(receipt.rawData());
+        line.endObject();
+        writer.write('\n');
+    }
+
+    /**
+     * Picks the shard of a receipt by its processed date, e.g. {@code 2026/2026-03.ndjson}.
+     */
+    static String shardOf(String processedDate) {
+        if (processedDate == null || processedDate.length() < 7 || processedDate.charAt(4) != '-') {
+            return "undated.ndjson";
+        }
+        return processedDate.substring(0, 4) + "/" + processedDate.substring(0, 7) + ".ndjson";
+    }
+
+    /**
+     * Reads the ID from the last complete line of a shard, truncating a torn last line.
+     */
+    private static int lastIdOf(Path shard) throws IOException {
+        try (FileChannel channel = FileChannel.open(shard, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            long size = channel.size();
+            long end = lastNewline(channel, size);
+            if (end + 1 < size) {
+                System.err.println("Cutting off incomplete last line of " + shard);
+                channel.truncate(end + 1);
+            }
+            if (end < 0) {
+                return 0;
+            }
+
+            long start = lastNewline(channel, end) + 1;
+            ByteBuffer line = ByteBuffer.allocate((int) (end - start));
+            while (line.hasRemaining() && channel.read(line, start + line.position()) > 0) {
+                // Keep reading until the line is complete
+            }
+            return ReceiptExportReader.parseLine(new String(line.array(), StandardCharsets.UTF_8)).id();
+        }
+    }
+
+    /**
+     * Finds the last newline before a position, reading backwards in chunks.
+     *
+     * @return Its position, or -1 if there is none
+     */
+    private static long lastNewline(FileChannel channel, long before) throws IOException {
+        ByteBuffer chunk = ByteBuffer.allocate(TAIL_CHUNK_BYTES);
+        long end = before;
+        while (end > 0) {
+            long start = Math.max(0, end - TAIL_CHUNK_BYTES);
+            chunk.clear().limit((int) (end - start));
+            while (chunk.hasRemaining() && channel.read(chunk, start + chunk.position()) > 0) {
+                // Keep reading until the chunk is full
+            }
+            for (int i = chunk.position() - 1; i >= 0; i--) {
+                if (chunk.get(i) == '\n') {
+                    return start + i;
+                }
+            }
+            end = start;
+        }
+        return -1;
+    }
+}
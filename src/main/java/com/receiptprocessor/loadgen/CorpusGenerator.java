@@ -0,0 +1,246 @@
+package com.receiptprocessor.loadgen;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Fabricates a directory tree of receipt files for scale testing.
+ * <p>
+ * Files are spread in contiguous blocks over {@code fanOut^depth} leaf directories, like a
+ * year/month archive. Most files have unique contents; a configurable share are exact
+ * copies of earlier files, either under the same name in another directory (duplicates)
+ * or under a new name (renamed), so content-hash deduplication has work to do.
+ * The same seed always produces the same tree.
+ */
+public class CorpusGenerator {
+
+    private static final String[] EXTENSIONS = {"pdf", "jpg", "jpg", "png"};
+    private static final int FILLER_BYTES = 1 << 20;
+    // Earlier files that copies are taken from; bounded so huge corpora need no per-file memory
+    private static final int COPY_SOURCES = 4096;
+
+    private int fileCount = 1000;
+    private int meanSizeBytes = 16 * 1024;
+    private int depth = 2;
+    private int fanOut = 12;
+    private double duplicateRatio = 0.05;
+    private double renamedRatio = 0.05;
+    private long seed = 42;
+
+    /**
+     * Counts of what {@link #generate(Path)} wrote.
+     */
+    public record Result(int files, int unique, int duplicates, int renamed, long bytes, double elapsedSeconds) {
+        public Map<String, Object> toMap() {
+            Map<String, Object> map = new LinkedHashMap<>();
+            map.put("files", files);
+            map.put("unique", unique);
+            map.put("duplicates", duplicates);
+            map.put("renamed", renamed);
+            map.put("bytes", bytes);
+            map.put("elapsed_seconds", Math.round(elapsedSeconds * 1000) / 1000.0);
+            return map;
+        }
+    }
+
+    /**
+     * Writes the corpus. Existing files with the same names are overwritten.
+     *
+     * @param root Directory to create the tree in
+     * @return What was written
+     */
+    public Result generate(Path root) throws IOException {
+        long start = System.nanoTime();
+        Random random = new Random(seed);
+        byte[] filler = new byte[FILLER_BYTES];
+        random.nextBytes(filler);
+
+        int leaves = leafCount();
+        Path[] copySources = new Path[COPY_SOURCES];
+        int sourceCount = 0;
+        int unique = 0;
+        int duplicates = 0;
+        int renamed = 0;
+        long bytes = 0;
+
+        for (int i = 0; i < fileCount; i++) {
+            Path directory = leafDirectory(root, (int) ((long) i * leaves / fileCount));
+            Files.createDirectories(directory);
+
+            double roll = random.nextDouble();
+            Path source = sourceCount > 0 ? copySources[random.nextInt(Math.min(sourceCount, COPY_SOURCES))] : null;
+            // A file of that name may already be here; it becomes a renamed copy then
+            Path duplicate = source != null ? directory.resolve(source.getFileName()) : null;
+            if (duplicate != null && roll < duplicateRatio && !Files.exists(duplicate)) {
+                Path target = duplicate;
+                Files.copy(source, target);
+                bytes += Files.size(target);
+                duplicates++;
+            } else if (source != null && roll < duplicateRatio + renamedRatio) {
+                Path target = directory.resolve("receipt-" + i + extensionOf(source));
+                Files.copy(source, target, StandardCopyOption.REPLACE_EXISTING);
+                bytes += Files.size(target);
+                renamed++;
+            } else {
+                String extension = EXTENSIONS[random.nextInt(EXTENSIONS.length)];
+                Path target = directory.resolve("receipt-" + i + "." + extension);
+                byte[] content = content(i, extension, random, filler);
+                Files.write(target, content);
+                bytes += content.length;
+                copySources[sourceCount++ % COPY_SOURCES] = target;
+                unique++;
+            }
+        }
+
+        return new Result(fileCount, unique, duplicates, renamed, bytes, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * A format header, a line that makes the file unique, then random filler up to a size
+     * between half and one and a half times the mean.
+     */
+    private byte[] content(int number, String extension, Random random, byte[] filler) {
+        byte[] header = switch (extension) {
+            case "pdf" -> "%PDF-1.4\n".getBytes(StandardCharsets.US_ASCII);
+            case "png" -> new byte[] {(byte) 0x89, 'P', 'N', 'G', '\r', '\n', 0x1a, '\n'};
+            default -> new byte[] {(byte) 0xff, (byte) 0xd8, (byte) 0xff, (byte) 0xe0};
+        };
+        byte[] id = ("receipt " + seed + "/" + number + "\n").getBytes(StandardCharsets.US_ASCII);
+        int size = Math.max(header.length + id.length, meanSizeBytes / 2 + random.nextInt(meanSizeBytes + 1));
+
+        byte[] content = new byte[size];
+        System.arraycopy(header, 0, content, 0, header.length);
+        System.arraycopy(id, 0, content, header.length, id.length);
+        int position = header.length + id.length;
+        int offset = random.nextInt(FILLER_BYTES);
+        while (position < size) {
+            int chunk = Math.min(size - position, FILLER_BYTES - offset);
+            System.arraycopy(filler, offset, content, position, chunk);
+            position += chunk;
+            offset = 0;
+        }
+        return content;
+    }
+
+    private int leafCount() {
+        long leaves = 1;
+        for (int level = 0; level < depth; level++) {
+            leaves = Math.min(leaves * fanOut, Integer.MAX_VALUE);
+        }
+        return (int) Math.min(leaves, Math.max(1, fileCount));
+    }
+
+    private Path leafDirectory(Path root, int leaf) {
+        Path directory = root;
+        for (int level = depth - 1; level >= 0; level--) {
+            long divisor = 1;
+            for (int i = 0; i < level && divisor <= leaf; i++) {
+                divisor *= fanOut;
+            }
+            directory = directory.resolve(String.format("%02d", leaf / divisor % fanOut + 1));
+        }
+        return directory;
+    }
+
+    private static String extensionOf(Path file) {
+        String name = file.getFileName().toString();
+        return name.substring(name.lastIndexOf('.'));
+    }
+
+    public int getFileCount() {
+        return fileCount;
+    }
+
+    public void setFileCount(int fileCount) {
+        if (fileCount < 0) {
+            throw new IllegalArgumentException("fileCount must not be negative");
+        }
+        this.fileCount = fileCount;
+    }
+
+    public int getMeanSizeBytes() {
+        return meanSizeBytes;
+    }
+
+    /**
+     * Sets the average file size; sizes vary between half and one and a half times this.
+     */
+    public void setMeanSizeBytes(int meanSizeBytes) {
+        if (meanSizeBytes < 1) {
+            throw new IllegalArgumentException("meanSizeBytes must be at least 1");
+        }
+        this.meanSizeBytes = meanSizeBytes;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * Sets how many directory levels lie between the root and the files.
+     */
+    public void setDepth(int depth) {
+        if (depth < 0) {
+            throw new IllegalArgumentException("depth must not be negative");
+        }
+        this.depth = depth;
+    }
+
+    public int getFanOut() {
+        return fanOut;
+    }
+
+    /**
+     * Sets the number of subdirectories per directory level.
+     */
+    public void setFanOut(int fanOut) {
+        if (fanOut < 1) {
+            throw new IllegalArgumentException("fanOut must be at least 1");
+        }
+        this.fanOut = fanOut;
+    }
+
+    public double getDuplicateRatio() {
+        return duplicateRatio;
+    }
+
+    /**
+     * Sets the share of files that are copies of an earlier file under the same name in another directory.
+     */
+    public void setDuplicateRatio(double duplicateRatio) {
+        checkRatios(duplicateRatio, renamedRatio);
+        this.duplicateRatio = duplicateRatio;
+    }
+
+    public double getRenamedRatio() {
+        return renamedRatio;
+    }
+
+    /**
+     * Sets the share of files that are copies of an earlier file under a new name.
+     */
+    public void setRenamedRatio(double renamedRatio) {
+        checkRatios(duplicateRatio, renamedRatio);
+        this.renamedRatio = renamedRatio;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    private static void checkRatios(double duplicateRatio, double renamedRatio) {
+        if (duplicateRatio < 0 || renamedRatio < 0 || duplicateRatio + renamedRatio > 1) {
+            throw new IllegalArgumentException("duplicate and renamed ratios must be between 0 and 1 in total");
+        }
+    }
+}
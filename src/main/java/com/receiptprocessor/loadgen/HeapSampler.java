@@ -0,0 +1,92 @@
+package com.receiptprocessor.loadgen;
+
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Tracks heap usage and garbage collection while a load test runs.
+ * Heap use is sampled on a background thread; the peak covers the time between
+ * construction and {@link #stop()}.
+ */
+public class HeapSampler implements AutoCloseable {
+
+    private static final long SAMPLE_MILLIS = 100;
+
+    private final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+    private final long gcCountAtStart = gcCount();
+    private final long gcMillisAtStart = gcMillis();
+    private final Thread sampler;
+    private volatile long peakUsedBytes;
+    private volatile boolean running = true;
+
+    public HeapSampler() {
+        sample();
+        sampler = new Thread(() -> {
+            while (running) {
+                sample();
+                try {
+                    Thread.sleep(SAMPLE_MILLIS);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }, "heap-sampler");
+        sampler.setDaemon(true);
+        sampler.start();
+    }
+
+    private void sample() {
+        peakUsedBytes = Math.max(peakUsedBytes, memory.getHeapMemoryUsage().getUsed());
+    }
+
+    /**
+     * Stops sampling. Safe to call more than once.
+     */
+    public void stop() {
+        running = false;
+        sampler.interrupt();
+        sample();
+    }
+
+    /**
+     * Stops sampling, like {@link #stop()}.
+     */
+    @Override
+    public void close() {
+        stop();
+    }
+
+    /**
+     * Reports heap use in bytes: the sampled {@code peak_used_bytes}, and {@code used_bytes}
+     * and {@code max_bytes} right now; plus {@code gc_count} and {@code gc_millis}, the
+     * collections and their total time since the sampler was created.
+     */
+    public Map<String, Object> toMap() {
+        Map<String, Object> heap = new LinkedHashMap<>();
+        heap.put("peak_used_bytes", peakUsedBytes);
+        heap.put("used_bytes", memory.getHeapMemoryUsage().getUsed());
+        heap.put("max_bytes", memory.getHeapMemoryUsage().getMax());
+        heap.put("gc_count", gcCount() - gcCountAtStart);
+        heap.put("gc_millis", gcMillis() - gcMillisAtStart);
+        return heap;
+    }
+
+    private static long gcCount() {
+        long count = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            count += Math.max(0, gc.getCollectionCount());
+        }
+        return count;
+    }
+
+    private static long gcMillis() {
+        long millis = 0;
+        for (GarbageCollectorMXBean gc : ManagementFactory.getGarbageCollectorMXBeans()) {
+            millis += Math.max(0, gc.getCollectionTime());
+        }
+        return millis;
+    }
+}
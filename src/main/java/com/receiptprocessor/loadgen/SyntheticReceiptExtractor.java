@@ -0,0 +1,120 @@
+package com.receiptprocessor.loadgen;
+
+import com.receiptprocessor.IReceiptExtractor;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stand-in extractor for load tests. Waits a configurable, jittered time per file like a
+ * remote model call, fails a configurable share of files, and returns receipts with a
+ * realistic spread of item counts, stores and dates.
+ * <p>
+ * The receipt, latency and failure of a file are derived from its content hash and the
+ * seed, so copies of a file behave alike and reruns see the same data. Failures are
+ * transient: each further attempt at a failed file rolls again, like a flaky remote backend.
+ */
+public class SyntheticReceiptExtractor implements IReceiptExtractor {
+
+    private static final String[] STORES = {"Corner Market", "FreshCo", "Grocer & Sons", "Bio Shop", "Mega Mart",
+        "Daily Deli", "Farmers Hall", "Quick Stop"};
+    private static final String[] PRODUCTS = {"Milk", "Bread", "Eggs", "Chicken Breast", "Rice", "Apples",
+        "Greek Yogurt", "Oats", "Tofu", "Salmon", "Spinach", "Cheddar", "Lentils", "Bananas", "Almonds",
+        "Pasta", "Tomatoes", "Coffee", "Peanut Butter", "Orange Juice"};
+    private static final int MAX_ITEMS = 60;
+
+    private final long latencyMillis;
+    private final long jitterMillis;
+    private final double failureRate;
+    private final long seed;
+    // Attempts so far at files that failed and have not succeeded yet
+    private final Map<String, Integer> attempts = new ConcurrentHashMap<>();
+
+    /**
+     * @param latencyMillis Average time per extraction
+     * @param jitterMillis Largest deviation from the average, in either direction
+     * @param failureRate Share of files whose extraction fails, between 0 and 1
+     * @param seed Varies the generated receipts between corpora
+     */
+    public SyntheticReceiptExtractor(long latencyMillis, long jitterMillis, double failureRate, long seed) {
+        if (latencyMillis < 0 || jitterMillis < 0) {
+            throw new IllegalArgumentException("latency and jitter must not be negative");
+        }
+        if (failureRate < 0 || failureRate > 1) {
+            throw new IllegalArgumentException("failureRate must be between 0 and 1");
+        }
+        this.latencyMillis = latencyMillis;
+        this.jitterMillis = jitterMillis;
+        this.failureRate = failureRate;
+        this.seed = seed;
+    }
+
+    @Override
+    public Map<String, Object> extractReceiptData(File receiptFile) throws Exception {
+        return extract(receiptFile.getName());
+    }
+
+    @Override
+    public Map<String, Object> extractReceiptData(File receiptFile, String contentHash) throws Exception {
+        return extract(contentHash);
+    }
+
+    /**
+     * Results depend on the settings, so a changed setup does not reuse cached extractions.
+     */
+    @Override
+    public String getVersion() {
+        return "synthetic-" + seed;
+    }
+
+    private Map<String, Object> extract(String key) throws Exception {
+        Random random = new Random(seed ^ key.hashCode());
+        long delay = latencyMillis + (jitterMillis > 0 ? (long) ((random.nextDouble() * 2 - 1) * jitterMillis) : 0);
+        if (delay > 0) {
+            Thread.sleep(delay);
+        }
+
+        double roll = random.nextDouble();
+        int attempt = attempts.getOrDefault(key, 0) + 1;
+        if (attempt > 1) {
+            roll = new Random(seed ^ key.hashCode() ^ attempt * 0x9E3779B97F4A7C15L).nextDouble();
+        }
+        if (roll < failureRate) {
+            attempts.put(key, attempt);
+            throw new IOException("Synthetic extraction failure");
+        }
+        attempts.remove(key);
+        return receipt(random);
+    }
+
+    private static Map<String, Object> receipt(Random random) {
+        // Mostly small baskets with a long tail of large shops
+        int itemCount = Math.min(MAX_ITEMS, 1 + (int) (-Math.log(1 - random.nextDouble()) * 8));
+        List<Map<String, Object>> items = new ArrayList<>(itemCount);
+        double total = 0;
+        for (int i = 0; i < itemCount; i++) {
+            double price = Math.round((0.5 + random.nextDouble() * random.nextDouble() * 30) * 100) / 100.0;
+            Map<String, Object> item = new LinkedHashMap<>();
+            item.put("name", PRODUCTS[random.nextInt(PRODUCTS.length)]);
+            item.put("price", price);
+            item.put("protein", Math.round(random.nextDouble() * 300) / 10.0);
+            item.put("calories", (double) (20 + random.nextInt(900)));
+            items.add(item);
+            total += price;
+        }
+
+        Map<String, Object> data = new LinkedHashMap<>();
+        data.put("items", items);
+        data.put("total_price", Math.round(total * 100) / 100.0);
+        data.put("store_name", STORES[random.nextInt(STORES.length)]);
+        data.put("date", String.format("%d-%02d-%02d", 2019 + random.nextInt(6), 1 + random.nextInt(12),
+            1 + random.nextInt(28)));
+        return data;
+    }
+}
@@ -0,0 +1,23 @@
+package com.receiptprocessor.metrics;
+
+/**
+ * JMX view of the process-wide counters.
+ */
+public interface CountersMXBean {
+
+    long getFilesScanned();
+
+    long getFilesSkipped();
+
+    long getReceiptsExtracted();
+
+    long getReceiptsStored();
+
+    long getFailures();
+
+    long getRetries();
+
+    long getGitCommits();
+
+    long getGitFailures();
+}
@@ -0,0 +1,21 @@
+package com.receiptprocessor.metrics;
+
+/**
+ * JMX view of one stage's latencies. Times are in milliseconds.
+ */
+public interface LatencyHistogramMXBean {
+
+    long getCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
@@ -0,0 +1,179 @@
+package com.receiptprocessor.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Process-wide counters and per-stage latency histograms of the hot paths.
+ * <p>
+ * Everything is preallocated, so recording is allocation-free and lock-free. The values
+ * are published as platform MBeans under {@code com.receiptprocessor:type=Latency,name=<stage>}
+ * and {@code com.receiptprocessor:type=Counters} for jconsole or any other JMX client.
+ */
+public final class Metrics {
+
+    /**
+     * Timed operations.
+     */
+    public enum Stage {
+        SCAN, HASH, EXTRACT, SERIALIZE, DB_WRITE, DB_READ, GIT
+    }
+
+    public enum Counter {
+        FILES_SCANNED, FILES_SKIPPED, RECEIPTS_EXTRACTED, RECEIPTS_STORED, FAILURES, RETRIES, GIT_COMMITS, GIT_FAILURES
+    }
+
+    private static final String DOMAIN = "com.receiptprocessor";
+
+    private static final LatencyHistogram[] HISTOGRAMS = new LatencyHistogram[Stage.values().length];
+    private static final AtomicLongArray COUNTERS = new AtomicLongArray(Counter.values().length);
+
+    static {
+        for (Stage stage : Stage.values()) {
+            HISTOGRAMS[stage.ordinal()] = new LatencyHistogram();
+        }
+        register();
+    }
+
+    private Metrics() {
+    }
+
+    /**
+     * Records how long one operation took.
+     *
+     * @param stage The timed operation
+     * @param nanos Duration in nanoseconds
+     */
+    public static void record(Stage stage, long nanos) {
+        HISTOGRAMS[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * Records the time elapsed since a {@link System#nanoTime()} reading.
+     *
+     * @param stage The timed operation
+     * @param startNanos The reading taken when the operation started
+     */
+    public static void recordSince(Stage stage, long startNanos) {
+        HISTOGRAMS[stage.ordinal()].record(System.nanoTime() - startNanos);
+    }
+
+    public static void increment(Counter counter) {
+        COUNTERS.incrementAndGet(counter.ordinal());
+    }
+
+    public static void add(Counter counter, long delta) {
+        COUNTERS.addAndGet(counter.ordinal(), delta);
+    }
+
+    public static long get(Counter counter) {
+        return COUNTERS.get(counter.ordinal());
+    }
+
+    public static LatencyHistogram histogram(Stage stage) {
+        return HISTOGRAMS[stage.ordinal()];
+    }
+
+    /**
+     * Snapshots the process-wide figures: {@code counters} holds every {@link Counter} by
+     * lower-case name, and {@code latency} holds per {@link Stage} the sample count and the
+     * mean, p50, p90, p99, p99.9 and max in milliseconds ({@code mean_ms} ... {@code max_ms}).
+     */
+    public static Map<String, Object> toMap() {
+        Map<String, Object> counters = new LinkedHashMap<>();
+        for (Counter counter : Counter.values()) {
+            counters.put(counter.name().toLowerCase(), get(counter));
+        }
+
+        Map<String, Object> stages = new LinkedHashMap<>();
+        for (Stage stage : Stage.values()) {
+            LatencyHistogram histogram = histogram(stage);
+            Map<String, Object> latency = new LinkedHashMap<>();
+            latency.put("count", histogram.getCount());
+            latency.put("mean_ms", round(histogram.getMeanMillis()));
+            latency.put("p50_ms", round(histogram.getP50Millis()));
+            latency.put("p90_ms", round(histogram.getP90Millis()));
+            latency.put("p99_ms", round(histogram.getP99Millis()));
+            latency.put("p999_ms", round(histogram.getP999Millis()));
+            latency.put("max_ms", round(histogram.getMaxMillis()));
+            stages.put(stage.name().toLowerCase(), latency);
+        }
+
+        Map<String, Object> metrics = new LinkedHashMap<>();
+        metrics.put("counters", counters);
+        metrics.put("latency", stages);
+        return metrics;
+    }
+
+    private static double round(double value) {
+        return Math.round(value * 1000) / 1000.0;
+    }
+
+    /**
+     * Publishes the MBeans. Metrics keep working without JMX, so failures are only logged.
+     */
+    private static void register() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            for (Stage stage : Stage.values()) {
+                ObjectName name = new ObjectName(DOMAIN + ":type=Latency,name=" + stage.name().toLowerCase());
+                if (!server.isRegistered(name)) {
+                    server.registerMBean(histogram(stage), name);
+                }
+            }
+            ObjectName counters = new ObjectName(DOMAIN + ":type=Counters");
+            if (!server.isRegistered(counters)) {
+                server.registerMBean(new Counters(), counters);
+            }
+        } catch (JMException | RuntimeException e) {
+            System.err.println("Could not register metrics MBeans: " + e.getMessage());
+        }
+    }
+
+    private static class Counters implements CountersMXBean {
+        @Override
+        public long getFilesScanned() {
+            return get(Counter.FILES_SCANNED);
+        }
+
+        @Override
+        public long getFilesSkipped() {
+            return get(Counter.FILES_SKIPPED);
+        }
+
+        @Override
+        public long getReceiptsExtracted() {
+            return get(Counter.RECEIPTS_EXTRACTED);
+        }
+
+        @Override
+        public long getReceiptsStored() {
+            return get(Counter.RECEIPTS_STORED);
+        }
+
+        @Override
+        public long getFailures() {
+            return get(Counter.FAILURES);
+        }
+
+        @Override
+        public long getRetries() {
+            return get(Counter.RETRIES);
+        }
+
+        @Override
+        public long getGitCommits() {
+            return get(Counter.GIT_COMMITS);
+        }
+
+        @Override
+        public long getGitFailures() {
+            return get(Counter.GIT_FAILURES);
+        }
+    }
+}
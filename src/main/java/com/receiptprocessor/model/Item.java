@@ -1,5 +1,8 @@
 package com.receiptprocessor.model;
 
+import java.util.LinkedHashMap;
+import java.util.Map;
+
 public class Item {
     private int id;
     private int receiptId;
@@ -7,6 +10,8 @@ public class Item {
     private double price;
     private double estimatedProtein; // in grams
     private double estimatedCalories; // in kcal
+    // Extracted fields without a dedicated property, kept so they survive a round trip
+    private Map<String, Object> extraFields = new LinkedHashMap<>();
 
     public Item() {
     }
@@ -66,4 +71,12 @@ public class Item {
     public void setEstimatedCalories(double estimatedCalories) {
         this.estimatedCalories = estimatedCalories;
     }
+
+    public Map<String, Object> getExtraFields() {
+        return extraFields;
+    }
+
+    public void setExtraFields(Map<String, Object> extraFields) {
+        this.extraFields = extraFields;
+    }
 }
@@ -2,14 +2,20 @@ package com.receiptprocessor.model;
 
 import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class Receipt {
     private int id;
     private String filename;
     private LocalDateTime processedDate;
     private double totalPrice;
+    private String storeName;
+    private String receiptDate;
     private List<Item> items;
+    // Extracted fields without a dedicated property, kept so they survive a round trip
+    private Map<String, Object> extraFields = new LinkedHashMap<>();
 
     public Receipt() {
         this.items = new ArrayList<>();
@@ -55,6 +61,22 @@ public class Receipt {
         this.totalPrice = totalPrice;
     }
 
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public void setStoreName(String storeName) {
+        this.storeName = storeName;
+    }
+
+    public String getReceiptDate() {
+        return receiptDate;
+    }
+
+    public void setReceiptDate(String receiptDate) {
+        this.receiptDate = receiptDate;
+    }
+
     public List<Item> getItems() {
         return items;
     }
@@ -66,4 +88,12 @@ public class Receipt {
     public void addItem(Item item) {
         this.items.add(item);
     }
+
+    public Map<String, Object> getExtraFields() {
+        return extraFields;
+    }
+
+    public void setExtraFields(Map<String, Object> extraFields) {
+        this.extraFields = extraFields;
+    }
 }
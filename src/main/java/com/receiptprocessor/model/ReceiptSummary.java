@@ -0,0 +1,91 @@
+package com.receiptprocessor.model;
+
+/**
+ * One row of the receipts list, read from the summary columns
+ * without parsing the stored extraction data.
+ */
+public class ReceiptSummary {
+    private int id;
+    private String filename;
+    private String processedDate;
+    private String preview;
+    private String storeName;
+    private String receiptDate;
+    private double totalPrice;
+    private int itemCount;
+
+    public ReceiptSummary() {
+    }
+
+    public ReceiptSummary(int id, String filename, String processedDate, String preview) {
+        this.id = id;
+        this.filename = filename;
+        this.processedDate = processedDate;
+        this.preview = preview;
+    }
+
+    // Getters and Setters
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getFilename() {
+        return filename;
+    }
+
+    public void setFilename(String filename) {
+        this.filename = filename;
+    }
+
+    public String getProcessedDate() {
+        return processedDate;
+    }
+
+    public void setProcessedDate(String processedDate) {
+        this.processedDate = processedDate;
+    }
+
+    public String getPreview() {
+        return preview;
+    }
+
+    public void setPreview(String preview) {
+        this.preview = preview;
+    }
+
+    public String getStoreName() {
+        return storeName;
+    }
+
+    public void setStoreName(String storeName) {
+        this.storeName = storeName;
+    }
+
+    public String getReceiptDate() {
+        return receiptDate;
+    }
+
+    public void setReceiptDate(String receiptDate) {
+        this.receiptDate = receiptDate;
+    }
+
+    public double getTotalPrice() {
+        return totalPrice;
+    }
+
+    public void setTotalPrice(double totalPrice) {
+        this.totalPrice = totalPrice;
+    }
+
+    public int getItemCount() {
+        return itemCount;
+    }
+
+    public void setItemCount(int itemCount) {
+        this.itemCount = itemCount;
+    }
+}
@@ -0,0 +1,148 @@
+package com.receiptprocessor.ui;
+
+import com.receiptprocessor.ReceiptProcessor;
+import com.receiptprocessor.db.JournalEntry;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.text.DateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * Lists the files that failed to ingest, from the ingestion journal, and re-queues
+ * the selected ones or all of them.
+ */
+public class FailuresDialog extends JDialog {
+
+    private static final String[] COLUMN_NAMES = {"File", "Attempts", "Last Error", "Failed At"};
+
+    private final ReceiptProcessor processor;
+    private final Runnable onRequeued;
+    private final DefaultTableModel model = new DefaultTableModel(COLUMN_NAMES, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JTable table = new JTable(model);
+    private final JLabel statusLabel = new JLabel("Loading...");
+    private final JButton retrySelectedButton = new JButton("Re-queue Selected");
+    private final JButton retryAllButton = new JButton("Re-queue All");
+    private List<JournalEntry> failures = List.of();
+
+    /**
+     * @param owner The window to center on
+     * @param processor Reads and updates the journal
+     * @param onRequeued Runs on the EDT after files were re-queued, e.g. to start processing them
+     */
+    public FailuresDialog(Frame owner, ReceiptProcessor processor, Runnable onRequeued) {
+        super(owner, "Failed Files", true);
+        this.processor = processor;
+        this.onRequeued = onRequeued;
+        setSize(800, 400);
+        setLocationRelativeTo(owner);
+
+        table.getColumnModel().getColumn(0).setPreferredWidth(300);
+        table.getColumnModel().getColumn(2).setPreferredWidth(250);
+        table.getSelectionModel().addListSelectionListener(e ->
+            retrySelectedButton.setEnabled(table.getSelectedRowCount() > 0));
+
+        retrySelectedButton.setEnabled(false);
+        retrySelectedButton.addActionListener(e -> requeue(selectedPaths()));
+        retryAllButton.setEnabled(false);
+        retryAllButton.addActionListener(e -> requeue(null));
+        JButton closeButton = new JButton("Close");
+        closeButton.addActionListener(e -> dispose());
+
+        JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+        buttonPanel.add(retrySelectedButton);
+        buttonPanel.add(retryAllButton);
+        buttonPanel.add(closeButton);
+
+        JPanel bottomPanel = new JPanel(new BorderLayout());
+        bottomPanel.add(statusLabel, BorderLayout.WEST);
+        bottomPanel.add(buttonPanel, BorderLayout.EAST);
+
+        JPanel mainPanel = new JPanel(new BorderLayout(10, 10));
+        mainPanel.setBorder(BorderFactory.createEmptyBorder(10, 10, 10, 10));
+        mainPanel.add(new JScrollPane(table), BorderLayout.CENTER);
+        mainPanel.add(bottomPanel, BorderLayout.SOUTH);
+        add(mainPanel);
+
+        load();
+    }
+
+    private void load() {
+        SwingWorker<List<JournalEntry>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<JournalEntry> doInBackground() throws Exception {
+                return processor.getFailedFiles();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    show(get());
+                } catch (Exception e) {
+                    statusLabel.setText("Error loading failures: " + e.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void show(List<JournalEntry> entries) {
+        failures = entries;
+        model.setRowCount(0);
+        DateFormat format = DateFormat.getDateTimeInstance(DateFormat.SHORT, DateFormat.MEDIUM);
+        for (JournalEntry entry : entries) {
+            model.addRow(new Object[] {
+                entry.path(),
+                entry.attempts(),
+                entry.lastError(),
+                format.format(new Date(entry.updatedAt()))
+            });
+        }
+        retryAllButton.setEnabled(!entries.isEmpty());
+        statusLabel.setText(entries.isEmpty() ? "No failed files" : entries.size() + " failed file(s)");
+    }
+
+    private List<String> selectedPaths() {
+        List<String> paths = new ArrayList<>();
+        for (int row : table.getSelectedRows()) {
+            paths.add(failures.get(table.convertRowIndexToModel(row)).path());
+        }
+        return paths;
+    }
+
+    /**
+     * @param paths The files to re-queue, or null for all
+     */
+    private void requeue(List<String> paths) {
+        retrySelectedButton.setEnabled(false);
+        retryAllButton.setEnabled(false);
+
+        SwingWorker<Integer, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return processor.requeueFailed(paths);
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    get();
+                    onRequeued.run();
+                    dispose();
+                } catch (Exception e) {
+                    statusLabel.setText("Error re-queuing files: " + e.getMessage());
+                    load();
+                }
+            }
+        };
+        worker.execute();
+    }
+}
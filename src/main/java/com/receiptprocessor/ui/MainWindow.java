@@ -1,17 +1,24 @@
 package com.receiptprocessor.ui;
 
+import com.receiptprocessor.IngestStats;
 import com.receiptprocessor.ReceiptProcessor;
+import com.receiptprocessor.WatchFolderService;
+import com.receiptprocessor.db.QueryCancellation;
+import com.receiptprocessor.model.ReceiptSummary;
 import com.google.gson.Gson;
 import com.google.gson.GsonBuilder;
 
 import javax.swing.*;
+import javax.swing.event.DocumentEvent;
+import javax.swing.event.DocumentListener;
 import javax.swing.table.DefaultTableModel;
 import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
 import java.io.File;
-import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Callable;
 
 public class MainWindow extends JFrame {
     
@@ -22,15 +29,50 @@ public class MainWindow extends JFrame {
     // UI Components
     private JLabel statusLabel;
     private JTable receiptsTable;
-    private DefaultTableModel tableModel;
+    private ReceiptTableModel tableModel;
+    private RollupPanel rollupPanel;
     private JButton viewDetailsButton;
+    private JButton processButton;
+    private JButton cancelButton;
+    private JProgressBar progressBar;
+    private JPanel progressPanel;
+    private Timer progressTimer;
+    // Set when stored receipts could not be added to the table as it is sorted or filtered
+    private boolean tableStale;
+    private JToggleButton watchButton;
+    private WatchFolderService watchService;
+    private JTextField searchField;
+    private Timer searchTimer;
+    private SwingWorker<List<ReceiptSummary>, Void> searchWorker;
+    // Stops the database query of searchWorker
+    private QueryCancellation searchCancellation;
     
-    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+    private static final long WATCH_DEBOUNCE_MILLIS = 1000;
+    private static final int SEARCH_DELAY_MILLIS = 150;
+    private static final int SEARCH_LIMIT = 500;
+    private static final int PROGRESS_INTERVAL_MILLIS = 250;
+
+    /**
+     * Launches the GUI on the Event Dispatch Thread.
+     */
+    public static void launch() {
+        SwingUtilities.invokeLater(() -> {
+            MainWindow window = new MainWindow();
+            window.setVisible(true);
+        });
+    }
 
     public MainWindow() {
         this.processor = new ReceiptProcessor();
         initializeUI();
+        // Stored receipts are added to the table as each batch commits, by manual and watch runs alike
+        processor.setIngestListener(receipts -> SwingUtilities.invokeLater(() -> {
+            if (!tableModel.addReceipts(receipts)) {
+                tableStale = true;
+            }
+        }));
         loadReceipts();
+        resumeInterrupted();
     }
 
     private void initializeUI() {
@@ -49,30 +91,66 @@ public class MainWindow extends JFrame {
         JButton selectFolderButton = new JButton("Select Input Folder");
         selectFolderButton.addActionListener(e -> selectInputFolder());
         
-        JButton processButton = new JButton("Process Receipts");
+        processButton = new JButton("Process Receipts");
         processButton.addActionListener(e -> processReceipts());
         
+        watchButton = new JToggleButton("Watch Folder");
+        watchButton.addActionListener(e -> toggleWatching());
+        
         JButton refreshButton = new JButton("Refresh");
         refreshButton.addActionListener(e -> loadReceipts());
         
         topPanel.add(selectFolderButton);
         topPanel.add(processButton);
+        topPanel.add(watchButton);
         topPanel.add(refreshButton);
 
-        // Table for receipts - dynamic columns
-        String[] columnNames = {"ID", "Filename", "Date", "Preview"};
-        tableModel = new DefaultTableModel(columnNames, 0) {
+        // Search runs shortly after typing pauses, so each keystroke does not start a query
+        searchField = new JTextField(20);
+        searchField.setToolTipText("Search stores, items and filenames");
+        searchTimer = new Timer(SEARCH_DELAY_MILLIS, e -> runSearch());
+        searchTimer.setRepeats(false);
+        searchField.getDocument().addDocumentListener(new DocumentListener() {
             @Override
-            public boolean isCellEditable(int row, int column) {
-                return false;
+            public void insertUpdate(DocumentEvent e) {
+                searchTimer.restart();
             }
-        };
+
+            @Override
+            public void removeUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+
+            @Override
+            public void changedUpdate(DocumentEvent e) {
+                searchTimer.restart();
+            }
+        });
+        topPanel.add(new JLabel("Search:"));
+        topPanel.add(searchField);
+
+        // Table for receipts - rows are paged in lazily as the table scrolls
+        tableModel = new ReceiptTableModel(processor);
         receiptsTable = new JTable(tableModel);
         receiptsTable.getSelectionModel().setSelectionMode(ListSelectionModel.SINGLE_SELECTION);
-        receiptsTable.getColumnModel().getColumn(3).setPreferredWidth(300);
+        receiptsTable.getColumnModel().getColumn(ReceiptTableModel.PREVIEW_COLUMN).setPreferredWidth(300);
+        receiptsTable.getTableHeader().setReorderingAllowed(false);
+        receiptsTable.getTableHeader().addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                sortByColumn(receiptsTable.columnAtPoint(e.getPoint()));
+            }
+        });
         
         JScrollPane scrollPane = new JScrollPane(receiptsTable);
 
+        // Spend and nutrition totals next to the receipts list
+        rollupPanel = new RollupPanel(processor);
+        JTabbedPane tabs = new JTabbedPane();
+        tabs.addTab("Receipts", scrollPane);
+        tabs.addTab("Summary", rollupPanel);
+        tabs.addTab("Metrics", new MetricsPanel());
+
         // Bottom panel
         JPanel bottomPanel = new JPanel(new BorderLayout());
         
@@ -84,17 +162,36 @@ public class MainWindow extends JFrame {
             viewDetailsButton.setEnabled(receiptsTable.getSelectedRow() != -1);
         });
         
+        JButton failuresButton = new JButton("Failed Files...");
+        failuresButton.addActionListener(e -> showFailures());
+
         JPanel buttonPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
         buttonPanel.add(viewDetailsButton);
+        buttonPanel.add(failuresButton);
         
         statusLabel = new JLabel("Ready");
+
+        // Shown while a run started here is in progress
+        progressBar = new JProgressBar();
+        progressBar.setStringPainted(true);
+        cancelButton = new JButton("Cancel");
+        cancelButton.addActionListener(e -> cancelProcessing());
+        progressTimer = new Timer(PROGRESS_INTERVAL_MILLIS, e -> updateProgress());
+        progressPanel = new JPanel(new BorderLayout(5, 0));
+        progressPanel.add(progressBar, BorderLayout.CENTER);
+        progressPanel.add(cancelButton, BorderLayout.EAST);
+        progressPanel.setVisible(false);
+
+        JPanel statusPanel = new JPanel(new BorderLayout(0, 5));
+        statusPanel.add(progressPanel, BorderLayout.NORTH);
+        statusPanel.add(statusLabel, BorderLayout.SOUTH);
         
         bottomPanel.add(buttonPanel, BorderLayout.NORTH);
-        bottomPanel.add(statusLabel, BorderLayout.SOUTH);
+        bottomPanel.add(statusPanel, BorderLayout.SOUTH);
 
         // Add components to main panel
         mainPanel.add(topPanel, BorderLayout.NORTH);
-        mainPanel.add(scrollPane, BorderLayout.CENTER);
+        mainPanel.add(tabs, BorderLayout.CENTER);
         mainPanel.add(bottomPanel, BorderLayout.SOUTH);
 
         add(mainPanel);
@@ -112,9 +209,57 @@ public class MainWindow extends JFrame {
         if (result == JFileChooser.APPROVE_OPTION) {
             selectedDirectory = chooser.getSelectedFile();
             statusLabel.setText("Selected: " + selectedDirectory.getAbsolutePath());
+            if (watchService != null) {
+                // Keep watching, but follow the newly selected folder
+                stopWatching();
+                toggleWatching();
+            }
         }
     }
 
+    private void toggleWatching() {
+        if (watchService != null) {
+            stopWatching();
+            statusLabel.setText("Stopped watching");
+            return;
+        }
+
+        if (selectedDirectory == null) {
+            watchButton.setSelected(false);
+            JOptionPane.showMessageDialog(this, 
+                "Please select an input folder first.", 
+                "No Folder Selected", 
+                JOptionPane.WARNING_MESSAGE);
+            return;
+        }
+
+        WatchFolderService service = new WatchFolderService(processor, selectedDirectory, WATCH_DEBOUNCE_MILLIS);
+        service.setOnProcessed(count -> SwingUtilities.invokeLater(() -> {
+            refreshAfterIngest();
+            statusLabel.setText("Watching: added " + count + " new receipt(s)");
+        }));
+        try {
+            service.start();
+            watchService = service;
+            watchButton.setSelected(true);
+            statusLabel.setText("Watching: " + selectedDirectory.getAbsolutePath());
+        } catch (Exception e) {
+            watchButton.setSelected(false);
+            JOptionPane.showMessageDialog(this, 
+                "Error: " + e.getMessage(), 
+                "Watch Error", 
+                JOptionPane.ERROR_MESSAGE);
+        }
+    }
+
+    private void stopWatching() {
+        WatchFolderService service = watchService;
+        watchService = null;
+        watchButton.setSelected(false);
+        // Closing waits for the ingest in progress, so do it off the EDT
+        new Thread(service::close, "watch-folder-stop").start();
+    }
+
     private void processReceipts() {
         if (selectedDirectory == null) {
             JOptionPane.showMessageDialog(this, 
@@ -124,22 +269,90 @@ public class MainWindow extends JFrame {
             return;
         }
 
-        statusLabel.setText("Processing receipts...");
+        File directory = selectedDirectory;
+        startRun("Processing receipts...", () -> processor.processReceipts(directory), true);
+    }
+
+    /**
+     * Finishes files left over by an interrupted run, or re-queued after a failure,
+     * from the ingestion journal. Does nothing if there are none.
+     */
+    private void resumeInterrupted() {
+        SwingWorker<Integer, Void> worker = new SwingWorker<>() {
+            @Override
+            protected Integer doInBackground() throws Exception {
+                return processor.countInterrupted();
+            }
+
+            @Override
+            protected void done() {
+                try {
+                    int pending = get();
+                    if (pending > 0 && processButton.isEnabled()) {
+                        startRun("Resuming " + pending + " unfinished file(s)...", processor::resumeInterrupted,
+                            false);
+                    }
+                } catch (Exception e) {
+                    statusLabel.setText("Error reading ingestion journal: " + e.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void showFailures() {
+        new FailuresDialog(this, processor, () -> {
+            if (processButton.isEnabled()) {
+                resumeInterrupted();
+            } else {
+                statusLabel.setText("Re-queued files are retried on the next run");
+            }
+        }).setVisible(true);
+    }
+
+    /**
+     * Runs an ingestion in the background with the progress bar showing.
+     *
+     * @param status Status text while the run starts
+     * @param run The run; returns the number of receipts processed
+     * @param announce Whether to confirm the result in a dialog, rather than only in the status bar
+     */
+    private void startRun(String status, Callable<Integer> run, boolean announce) {
+        statusLabel.setText(status);
+        processButton.setEnabled(false);
+        cancelButton.setEnabled(true);
+        progressBar.setValue(0);
+        progressBar.setIndeterminate(true);
+        progressBar.setString("Scanning...");
+        progressPanel.setVisible(true);
+        progressTimer.start();
         
-        // Process in background thread
+        // Process in background thread; stored receipts reach the table through the ingest listener
         SwingWorker<Integer, Void> worker = new SwingWorker<>() {
             @Override
             protected Integer doInBackground() throws Exception {
-                return processor.processReceipts(selectedDirectory);
+                return run.call();
             }
 
             @Override
             protected void done() {
+                progressTimer.stop();
+                progressPanel.setVisible(false);
+                processButton.setEnabled(true);
+                boolean cancelled = !cancelButton.isEnabled();
+                refreshAfterIngest();
+
                 try {
                     int count = get();
+                    if (cancelled) {
+                        statusLabel.setText("Cancelled; processed " + count + " new receipt(s)");
+                        return;
+                    }
                     statusLabel.setText("Processed " + count + " new receipt(s)");
-                    loadReceipts();
                     
+                    if (!announce) {
+                        return;
+                    }
                     if (count > 0) {
                         JOptionPane.showMessageDialog(MainWindow.this, 
                             "Successfully processed " + count + " receipt(s)", 
@@ -164,82 +377,149 @@ public class MainWindow extends JFrame {
         worker.execute();
     }
 
+    /**
+     * Stops picking up new files. Receipts already being extracted are still stored,
+     * and the worker finishes once they are.
+     */
+    private void cancelProcessing() {
+        cancelButton.setEnabled(false);
+        progressBar.setString("Cancelling...");
+        processor.cancel();
+    }
+
+    /**
+     * Shows files done out of files found so far, throughput, and once the scan is
+     * complete, the time left at the rate so far.
+     */
+    private void updateProgress() {
+        if (!cancelButton.isEnabled()) {
+            // Keep showing "Cancelling..." while in-flight receipts are stored
+            return;
+        }
+        IngestStats stats = processor.getLastRunStats();
+        int scanned = stats.getFilesScanned();
+        int handled = stats.getHandled();
+        double elapsed = stats.getElapsedSeconds();
+
+        progressBar.setIndeterminate(false);
+        progressBar.setMaximum(Math.max(1, scanned));
+        progressBar.setValue(handled);
+
+        String text = String.format("%d / %d files, %.1f receipts/s", handled, scanned, stats.getReceiptsPerSecond());
+        if (!stats.isScanComplete()) {
+            text += ", scanning...";
+        } else if (handled > 0 && handled < scanned) {
+            long remainingSeconds = Math.round((scanned - handled) * elapsed / handled);
+            text += String.format(", ETA %d:%02d", remainingSeconds / 60, remainingSeconds % 60);
+        }
+        progressBar.setString(text);
+    }
+
+    /**
+     * Brings the views up to date after receipts were stored. The table already shows the
+     * new rows, unless its sort order or search kept them out; then it reloads lazily.
+     */
+    private void refreshAfterIngest() {
+        rollupPanel.refresh();
+        if (!searchField.getText().isBlank()) {
+            // New receipts may match the search being shown
+            runSearch();
+        }
+        if (tableStale) {
+            tableStale = false;
+            tableModel.refresh(count -> { }, e -> statusLabel.setText("Error loading receipts: " + e.getMessage()));
+        }
+    }
+
     private void loadReceipts() {
         statusLabel.setText("Loading receipts...");
+        rollupPanel.refresh();
+        if (!searchField.getText().isBlank()) {
+            // New receipts may match the search being shown
+            runSearch();
+        }
         
-        SwingWorker<List<Map<String, Object>>, Void> worker = new SwingWorker<>() {
+        tableModel.refresh(
+            count -> statusLabel.setText("Loaded " + count + " receipt(s)"),
+            e -> {
+                statusLabel.setText("Error loading receipts");
+                JOptionPane.showMessageDialog(MainWindow.this, 
+                    "Error: " + e.getMessage(), 
+                    "Load Error", 
+                    JOptionPane.ERROR_MESSAGE);
+            });
+    }
+
+    private void runSearch() {
+        if (searchWorker != null) {
+            // Results of a query for older text are no longer wanted; stop it in SQLite too,
+            // so it does not keep holding a reader connection
+            searchCancellation.cancel();
+            searchWorker.cancel(true);
+            searchWorker = null;
+            searchCancellation = null;
+        }
+
+        String text = searchField.getText().trim();
+        if (text.isEmpty()) {
+            tableModel.clearSearchResults();
+            updateSortIndicators();
+            statusLabel.setText("Ready");
+            return;
+        }
+
+        QueryCancellation cancellation = new QueryCancellation();
+        SwingWorker<List<ReceiptSummary>, Void> worker = new SwingWorker<>() {
             @Override
-            protected List<Map<String, Object>> doInBackground() throws Exception {
-                return processor.getAllReceipts();
+            protected List<ReceiptSummary> doInBackground() throws Exception {
+                return processor.searchReceipts(text, SEARCH_LIMIT, cancellation);
             }
 
             @Override
             protected void done() {
+                if (isCancelled() || searchWorker != this) {
+                    return;
+                }
+                searchWorker = null;
+                searchCancellation = null;
                 try {
-                    List<Map<String, Object>> receipts = get();
-                    updateTable(receipts);
-                    statusLabel.setText("Loaded " + receipts.size() + " receipt(s)");
+                    List<ReceiptSummary> results = get();
+                    receiptsTable.clearSelection();
+                    tableModel.showSearchResults(results);
+                    updateSortIndicators();
+                    statusLabel.setText("Found " + results.size() + " receipt(s) for \"" + text + "\"");
                 } catch (Exception e) {
-                    statusLabel.setText("Error loading receipts");
-                    JOptionPane.showMessageDialog(MainWindow.this, 
-                        "Error: " + e.getMessage(), 
-                        "Load Error", 
-                        JOptionPane.ERROR_MESSAGE);
+                    statusLabel.setText("Error searching receipts: " + e.getMessage());
                 }
             }
         };
-        
+        searchWorker = worker;
+        searchCancellation = cancellation;
         worker.execute();
     }
 
-    private void updateTable(List<Map<String, Object>> receipts) {
-        tableModel.setRowCount(0);
-        
-        for (Map<String, Object> receipt : receipts) {
-            // Extract key fields
-            Object id = receipt.get("id");
-            Object filename = receipt.get("filename");
-            Object processedDate = receipt.get("processed_date");
-            
-            // Create a preview of the data (first few keys)
-            StringBuilder preview = new StringBuilder();
-            int count = 0;
-            for (Map.Entry<String, Object> entry : receipt.entrySet()) {
-                if (entry.getKey().equals("id") || entry.getKey().equals("filename") || 
-                    entry.getKey().equals("processed_date")) {
-                    continue;
-                }
-                if (count > 0) preview.append(", ");
-                preview.append(entry.getKey()).append(": ");
-                Object value = entry.getValue();
-                if (value instanceof List) {
-                    preview.append("[").append(((List<?>) value).size()).append(" items]");
-                } else {
-                    preview.append(value);
-                }
-                count++;
-                if (count >= 2) break;
-            }
-            
-            // Format date
-            String dateStr = "";
-            if (processedDate != null) {
-                try {
-                    LocalDateTime dt = LocalDateTime.parse(processedDate.toString());
-                    dateStr = dt.format(DATE_FORMATTER);
-                } catch (Exception e) {
-                    dateStr = processedDate.toString();
-                }
-            }
-            
-            Object[] row = {
-                id,
-                filename,
-                dateStr,
-                preview.toString()
-            };
-            tableModel.addRow(row);
+    private void sortByColumn(int viewColumn) {
+        if (viewColumn < 0) {
+            return;
+        }
+        int column = receiptsTable.convertColumnIndexToModel(viewColumn);
+        if (!tableModel.sortBy(column)) {
+            return;
         }
+
+        updateSortIndicators();
+        receiptsTable.clearSelection();
+    }
+
+    /**
+     * Updates the sort indicators in the header without rebuilding the columns.
+     */
+    private void updateSortIndicators() {
+        for (int i = 0; i < receiptsTable.getColumnCount(); i++) {
+            receiptsTable.getColumnModel().getColumn(i)
+                .setHeaderValue(tableModel.getColumnName(receiptsTable.convertColumnIndexToModel(i)));
+        }
+        receiptsTable.getTableHeader().repaint();
     }
 
     private void viewSelectedReceipt() {
@@ -248,9 +528,13 @@ public class MainWindow extends JFrame {
             return;
         }
 
-        Object idObj = tableModel.getValueAt(selectedRow, 0);
-        int receiptId = idObj instanceof Double ? ((Double) idObj).intValue() : (int) idObj;
-        String filename = (String) tableModel.getValueAt(selectedRow, 1);
+        ReceiptSummary receipt = tableModel.getReceiptAt(selectedRow);
+        if (receipt == null) {
+            // Row is still loading
+            return;
+        }
+        int receiptId = receipt.getId();
+        String filename = receipt.getFilename();
         
         statusLabel.setText("Loading details for " + filename + "...");
         
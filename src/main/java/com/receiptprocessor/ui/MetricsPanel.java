@@ -0,0 +1,84 @@
+package com.receiptprocessor.ui;
+
+import com.receiptprocessor.metrics.LatencyHistogram;
+import com.receiptprocessor.metrics.Metrics;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.StringJoiner;
+
+/**
+ * Live view of the process-wide counters and per-stage latencies.
+ * Refreshes once a second while it is on screen; reading the metrics is cheap, so this runs on the EDT.
+ */
+public class MetricsPanel extends JPanel {
+
+    private static final int REFRESH_MILLIS = 1000;
+    private static final String[] COLUMN_NAMES =
+        {"Stage", "Count", "Mean (ms)", "p50 (ms)", "p90 (ms)", "p99 (ms)", "p99.9 (ms)", "Max (ms)"};
+
+    private final DefaultTableModel model = new DefaultTableModel(COLUMN_NAMES, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JLabel countersLabel = new JLabel(" ");
+    private final Timer timer = new Timer(REFRESH_MILLIS, e -> refresh());
+
+    public MetricsPanel() {
+        super(new BorderLayout(5, 5));
+
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            model.addRow(new Object[] {stage.name().toLowerCase(), 0L, "", "", "", "", "", ""});
+        }
+
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        add(countersLabel, BorderLayout.SOUTH);
+    }
+
+    @Override
+    public void addNotify() {
+        super.addNotify();
+        refresh();
+        timer.start();
+    }
+
+    @Override
+    public void removeNotify() {
+        timer.stop();
+        super.removeNotify();
+    }
+
+    /**
+     * Updates the table in place, skipping the work while the panel is hidden behind another tab.
+     */
+    private void refresh() {
+        if (!isShowing()) {
+            return;
+        }
+
+        for (Metrics.Stage stage : Metrics.Stage.values()) {
+            LatencyHistogram histogram = Metrics.histogram(stage);
+            int row = stage.ordinal();
+            model.setValueAt(histogram.getCount(), row, 1);
+            model.setValueAt(format(histogram.getMeanMillis()), row, 2);
+            model.setValueAt(format(histogram.getP50Millis()), row, 3);
+            model.setValueAt(format(histogram.getP90Millis()), row, 4);
+            model.setValueAt(format(histogram.getP99Millis()), row, 5);
+            model.setValueAt(format(histogram.getP999Millis()), row, 6);
+            model.setValueAt(format(histogram.getMaxMillis()), row, 7);
+        }
+
+        StringJoiner counters = new StringJoiner(", ");
+        for (Metrics.Counter counter : Metrics.Counter.values()) {
+            counters.add(counter.name().toLowerCase().replace('_', ' ') + ": " + Metrics.get(counter));
+        }
+        countersLabel.setText(counters.toString());
+    }
+
+    private static String format(double millis) {
+        return String.format("%.3f", millis);
+    }
+}
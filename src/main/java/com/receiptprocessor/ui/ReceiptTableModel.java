@@ -0,0 +1,375 @@
+package com.receiptprocessor.ui;
+
+import com.receiptprocessor.ReceiptProcessor;
+import com.receiptprocessor.db.DatabaseManager;
+import com.receiptprocessor.db.PageKey;
+import com.receiptprocessor.db.ReceiptCount;
+import com.receiptprocessor.db.ReceiptSort;
+import com.receiptprocessor.model.ReceiptSummary;
+
+import javax.swing.*;
+import javax.swing.table.AbstractTableModel;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.*;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Consumer;
+
+/**
+ * Lazy table model for the receipts list.
+ * Rows are fetched a page at a time, off the EDT, as the table asks for them,
+ * and only a bounded number of pages are kept in memory.
+ * Sorting is done by the database on the indexed summary columns.
+ * While a search is shown, the model lists the ranked search results instead.
+ * <p>
+ * Receipts stored after the last refresh can be added as they arrive: in ID order they are
+ * kept in memory at the top (newest first) or bottom of the list, and the paged rows stay
+ * limited to the receipts that were counted, so no page has to be reloaded.
+ */
+public class ReceiptTableModel extends AbstractTableModel {
+
+    private static final String[] COLUMN_NAMES =
+        {"ID", "Filename", "Processed", "Store", "Receipt Date", "Total", "Items", "Preview"};
+    // Sort order per column; null for columns that cannot be sorted. Processing order is ID order.
+    private static final ReceiptSort[] COLUMN_SORTS = {ReceiptSort.ID, ReceiptSort.FILENAME, ReceiptSort.ID,
+        ReceiptSort.STORE, ReceiptSort.RECEIPT_DATE, ReceiptSort.TOTAL, null, null};
+    public static final int PREVIEW_COLUMN = 7;
+    private static final int PAGE_SIZE = 200;
+    private static final int MAX_CACHED_PAGES = 10;
+    private static final DateTimeFormatter DATE_FORMATTER = DateTimeFormatter.ofPattern("MMM dd, yyyy HH:mm");
+
+    private final ReceiptProcessor processor;
+    private final ExecutorService loader = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "receipt-page-loader");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    // EDT-only state
+    private final Map<Integer, List<ReceiptSummary>> pages = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<Integer, List<ReceiptSummary>> eldest) {
+            return size() > MAX_CACHED_PAGES;
+        }
+    };
+    private final Set<Integer> loadingPages = new HashSet<>();
+    // Number of paged rows: the receipts counted by the last refresh
+    private int rowCount;
+    // Highest ID among the paged rows, and among the paged and added rows
+    private int pagedMaxId;
+    private int lastId;
+    // Receipts stored since the last refresh, in ID order
+    private final List<ReceiptSummary> addedRows = new ArrayList<>();
+    private int generation;
+    private int sortColumn = 0;
+    private boolean ascending = false;
+    // Ranked search results replacing the paged list; null when no search is shown
+    private List<ReceiptSummary> searchResults;
+
+    // Sort order captured with each page request, so loader-thread work sees a consistent pair
+    // Newest-first ID order starts below the first receipt that was not counted, so the pages match the count
+    // The page end keys of that order go with it, so a request from before a re-sort cannot add keys to the new order
+    private record SortOrder(ReceiptSort sort, boolean ascending, PageKey start,
+                             NavigableMap<Integer, PageKey> pageEndKeys) {
+    }
+
+    // Key of the last row of each page seen so far; the keyset for the following page.
+    // Replaced, not cleared, when the order changes; the loader thread only uses the map captured in a SortOrder.
+    private NavigableMap<Integer, PageKey> pageEndKeys = new ConcurrentSkipListMap<>();
+
+    public ReceiptTableModel(ReceiptProcessor processor) {
+        this.processor = processor;
+    }
+
+    /**
+     * Drops all cached rows and reloads the receipt count.
+     *
+     * @param onLoaded Called on the EDT with the number of receipts, or null on failure
+     * @param onError Called on the EDT if the count could not be loaded
+     */
+    public void refresh(Consumer<Integer> onLoaded, Consumer<Exception> onError) {
+        int refreshGeneration = ++generation;
+        loader.execute(() -> {
+            try {
+                ReceiptCount count = processor.countReceiptsWithMaxId();
+                SwingUtilities.invokeLater(() -> {
+                    if (refreshGeneration != generation) {
+                        return;
+                    }
+                    clearPages();
+                    addedRows.clear();
+                    rowCount = count.count();
+                    pagedMaxId = count.maxId();
+                    lastId = count.maxId();
+                    fireTableDataChanged();
+                    onLoaded.accept(count.count());
+                });
+            } catch (Exception e) {
+                SwingUtilities.invokeLater(() -> onError.accept(e));
+            }
+        });
+    }
+
+    /**
+     * Sorts the list by a column. Selecting the current sort column again reverses the direction;
+     * a new column starts ascending, except the ID-ordered columns, which start newest first.
+     *
+     * @param column Model column index
+     * @return Whether the column is sortable
+     */
+    public boolean sortBy(int column) {
+        if (COLUMN_SORTS[column] == null || searchResults != null) {
+            return false;
+        }
+
+        if (column == sortColumn) {
+            ascending = !ascending;
+        } else {
+            sortColumn = column;
+            ascending = COLUMN_SORTS[column] != ReceiptSort.ID;
+        }
+
+        generation++;
+        clearPages();
+        // The database lists the added receipts from now on
+        rowCount += addedRows.size();
+        pagedMaxId = lastId;
+        addedRows.clear();
+        fireTableDataChanged();
+        return true;
+    }
+
+    /**
+     * Adds newly stored receipts without reloading the list. Only possible while the list
+     * is sorted by ID and no search is shown; otherwise the list needs a {@link #refresh}.
+     * Receipts the list already holds are ignored.
+     *
+     * @param receipts Stored receipts in ID order
+     * @return Whether the receipts are shown
+     */
+    public boolean addReceipts(List<ReceiptSummary> receipts) {
+        if (searchResults != null || COLUMN_SORTS[sortColumn] != ReceiptSort.ID) {
+            return false;
+        }
+
+        int before = addedRows.size();
+        for (ReceiptSummary receipt : receipts) {
+            if (receipt.getId() > lastId) {
+                addedRows.add(receipt);
+                lastId = receipt.getId();
+            }
+        }
+
+        int added = addedRows.size() - before;
+        if (added > 0) {
+            if (ascending) {
+                fireTableRowsInserted(rowCount + before, rowCount + before + added - 1);
+            } else {
+                fireTableRowsInserted(0, added - 1);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Shows search results, in rank order, instead of the full list.
+     *
+     * @param results The receipts to show
+     */
+    public void showSearchResults(List<ReceiptSummary> results) {
+        searchResults = results;
+        fireTableDataChanged();
+    }
+
+    /**
+     * Returns to the full, paged receipts list.
+     */
+    public void clearSearchResults() {
+        if (searchResults == null) {
+            return;
+        }
+        searchResults = null;
+        fireTableDataChanged();
+    }
+
+    private void clearPages() {
+        pages.clear();
+        loadingPages.clear();
+        pageEndKeys = new ConcurrentSkipListMap<>();
+    }
+
+    /**
+     * Returns the receipt shown in a row, or null if its page is not loaded yet.
+     */
+    public ReceiptSummary getReceiptAt(int row) {
+        if (searchResults != null) {
+            return row < searchResults.size() ? searchResults.get(row) : null;
+        }
+        int added = addedRows.size();
+        if (!ascending && row < added) {
+            return addedRows.get(added - 1 - row);
+        }
+        if (ascending && row >= rowCount) {
+            return row - rowCount < added ? addedRows.get(row - rowCount) : null;
+        }
+
+        int pagedRow = pagedRowOf(row);
+        List<ReceiptSummary> page = pages.get(pagedRow / PAGE_SIZE);
+        int index = pagedRow % PAGE_SIZE;
+        return page != null && index < page.size() ? page.get(index) : null;
+    }
+
+    /**
+     * Converts a table row to its position among the paged rows.
+     */
+    private int pagedRowOf(int row) {
+        return ascending ? row : row - addedRows.size();
+    }
+
+    /**
+     * Converts a position among the paged rows to its table row.
+     */
+    private int tableRowOf(int pagedRow) {
+        return ascending ? pagedRow : pagedRow + addedRows.size();
+    }
+
+    @Override
+    public int getRowCount() {
+        return searchResults != null ? searchResults.size() : rowCount + addedRows.size();
+    }
+
+    @Override
+    public int getColumnCount() {
+        return COLUMN_NAMES.length;
+    }
+
+    @Override
+    public String getColumnName(int column) {
+        if (column == sortColumn && searchResults == null) {
+            return COLUMN_NAMES[column] + (ascending ? " \u25B2" : " \u25BC");
+        }
+        return COLUMN_NAMES[column];
+    }
+
+    @Override
+    public boolean isCellEditable(int row, int column) {
+        return false;
+    }
+
+    @Override
+    public Object getValueAt(int row, int column) {
+        ReceiptSummary receipt = getReceiptAt(row);
+        if (receipt == null) {
+            if (searchResults == null) {
+                int pageIndex = pagedRowOf(row) / PAGE_SIZE;
+                if (pages.containsKey(pageIndex)) {
+                    // The page came back shorter than counted; the receipt is gone until the next refresh
+                    return null;
+                }
+                requestPage(pageIndex);
+            }
+            return column == 1 ? "Loading..." : null;
+        }
+
+        return switch (column) {
+            case 0 -> receipt.getId();
+            case 1 -> receipt.getFilename();
+            case 2 -> formatDate(receipt.getProcessedDate());
+            case 3 -> receipt.getStoreName();
+            case 4 -> receipt.getReceiptDate();
+            case 5 -> String.format("%.2f", receipt.getTotalPrice());
+            case 6 -> receipt.getItemCount();
+            default -> receipt.getPreview();
+        };
+    }
+
+    private void requestPage(int pageIndex) {
+        if (!loadingPages.add(pageIndex)) {
+            return;
+        }
+
+        int requestGeneration = generation;
+        ReceiptSort sort = COLUMN_SORTS[sortColumn];
+        PageKey start = sort == ReceiptSort.ID && !ascending ? new PageKey(pagedMaxId + 1, pagedMaxId + 1) : null;
+        SortOrder order = new SortOrder(sort, ascending, start, pageEndKeys);
+        loader.execute(() -> {
+            List<ReceiptSummary> page;
+            try {
+                PageKey pageStart = findPageStart(pageIndex, order);
+                if (pageIndex > 0 && pageStart == null) {
+                    // The list ended before this page, e.g. receipts were deleted since the count
+                    page = List.of();
+                } else {
+                    page = processor.getReceiptPage(order.sort(), order.ascending(), pageStart, PAGE_SIZE);
+                }
+            } catch (Exception e) {
+                System.err.println("Failed to load receipts page " + pageIndex + ": " + e.getMessage());
+                page = null;
+            }
+
+            List<ReceiptSummary> loaded = page;
+            SwingUtilities.invokeLater(() -> {
+                if (requestGeneration != generation) {
+                    return;
+                }
+                loadingPages.remove(pageIndex);
+                if (loaded == null) {
+                    return;
+                }
+                if (!loaded.isEmpty()) {
+                    order.pageEndKeys().put(pageIndex, DatabaseManager.pageKeyOf(loaded.get(loaded.size() - 1), order.sort()));
+                }
+                pages.put(pageIndex, loaded);
+
+                int firstRow = pageIndex * PAGE_SIZE;
+                int lastRow = Math.min(firstRow + PAGE_SIZE, rowCount) - 1;
+                if (lastRow >= firstRow) {
+                    fireTableRowsUpdated(tableRowOf(firstRow), tableRowOf(lastRow));
+                }
+            });
+        });
+    }
+
+    /**
+     * Finds the keyset bound of a page: the key of the last row of the page before it.
+     * Jumps far down the list resolve from the nearest known page end in a single index walk.
+     * Runs on the loader thread.
+     *
+     * @return The bound, or null for a page past the end of the list (or the first page of an unbounded order)
+     */
+    private PageKey findPageStart(int pageIndex, SortOrder order) throws Exception {
+        if (pageIndex == 0) {
+            return order.start();
+        }
+
+        NavigableMap<Integer, PageKey> pageEndKeys = order.pageEndKeys();
+        PageKey knownEnd = pageEndKeys.get(pageIndex - 1);
+        if (knownEnd != null) {
+            return knownEnd;
+        }
+
+        Map.Entry<Integer, PageKey> nearest = pageEndKeys.floorEntry(pageIndex - 1);
+        PageKey fromKey = nearest != null ? nearest.getValue() : order.start();
+        int fromPage = nearest != null ? nearest.getKey() : -1;
+        int offset = (pageIndex - 1 - fromPage) * PAGE_SIZE - 1;
+
+        PageKey endKey = processor.findPageKeyAt(order.sort(), order.ascending(), fromKey, offset);
+        if (endKey != null) {
+            pageEndKeys.put(pageIndex - 1, endKey);
+        }
+        return endKey;
+    }
+
+    private static String formatDate(String processedDate) {
+        if (processedDate == null) {
+            return "";
+        }
+        try {
+            return LocalDateTime.parse(processedDate).format(DATE_FORMATTER);
+        } catch (Exception e) {
+            return processedDate;
+        }
+    }
+}
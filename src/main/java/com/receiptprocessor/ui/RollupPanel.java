@@ -0,0 +1,95 @@
+package com.receiptprocessor.ui;
+
+import com.receiptprocessor.ReceiptProcessor;
+import com.receiptprocessor.db.Rollup;
+import com.receiptprocessor.db.RollupPeriod;
+
+import javax.swing.*;
+import javax.swing.table.DefaultTableModel;
+import java.awt.*;
+import java.util.List;
+
+/**
+ * Summary of spend and nutrition per day, week, month or store.
+ * Reads the precomputed rollup buckets, so it stays fast however many receipts are stored.
+ */
+public class RollupPanel extends JPanel {
+
+    private static final String[] COLUMN_NAMES =
+        {"Bucket", "Receipts", "Items", "Total", "Protein (g)", "Calories"};
+
+    private final ReceiptProcessor processor;
+    private final JComboBox<RollupPeriod> periodBox = new JComboBox<>(RollupPeriod.values());
+    private final DefaultTableModel model = new DefaultTableModel(COLUMN_NAMES, 0) {
+        @Override
+        public boolean isCellEditable(int row, int column) {
+            return false;
+        }
+    };
+    private final JLabel totalsLabel = new JLabel(" ");
+    private int generation;
+
+    public RollupPanel(ReceiptProcessor processor) {
+        super(new BorderLayout(5, 5));
+        this.processor = processor;
+
+        periodBox.setSelectedItem(RollupPeriod.MONTH);
+        periodBox.addActionListener(e -> refresh());
+
+        JPanel topPanel = new JPanel(new FlowLayout(FlowLayout.LEFT));
+        topPanel.add(new JLabel("Group by:"));
+        topPanel.add(periodBox);
+
+        add(topPanel, BorderLayout.NORTH);
+        add(new JScrollPane(new JTable(model)), BorderLayout.CENTER);
+        add(totalsLabel, BorderLayout.SOUTH);
+    }
+
+    /**
+     * Reloads the buckets of the selected period off the EDT.
+     */
+    public void refresh() {
+        RollupPeriod period = (RollupPeriod) periodBox.getSelectedItem();
+        int refreshGeneration = ++generation;
+
+        SwingWorker<List<Rollup>, Void> worker = new SwingWorker<>() {
+            @Override
+            protected List<Rollup> doInBackground() throws Exception {
+                return processor.getRollups(period);
+            }
+
+            @Override
+            protected void done() {
+                if (refreshGeneration != generation) {
+                    return;
+                }
+                try {
+                    show(get());
+                } catch (Exception e) {
+                    model.setRowCount(0);
+                    totalsLabel.setText("Error loading summary: " + e.getMessage());
+                }
+            }
+        };
+        worker.execute();
+    }
+
+    private void show(List<Rollup> rollups) {
+        model.setRowCount(0);
+        int receipts = 0;
+        double price = 0;
+        for (Rollup rollup : rollups) {
+            model.addRow(new Object[] {
+                rollup.bucket().isEmpty() ? "(unknown)" : rollup.bucket(),
+                rollup.receiptCount(),
+                rollup.itemCount(),
+                String.format("%.2f", rollup.totalPrice()),
+                String.format("%.1f", rollup.totalProtein()),
+                String.format("%.0f", rollup.totalCalories())
+            });
+            receipts += rollup.receiptCount();
+            price += rollup.totalPrice();
+        }
+        totalsLabel.setText(String.format("%d bucket(s), %d receipt(s), %.2f total", rollups.size(), receipts, price));
+    }
+}